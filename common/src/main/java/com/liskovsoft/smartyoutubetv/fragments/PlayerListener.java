@@ -5,4 +5,9 @@ import android.content.Intent;
 public interface PlayerListener {
     void onPlayerAction(Intent intent);
     void openExternalPlayer(Intent intent);
+
+    /**
+     * Called periodically while the video is playing
+     */
+    void onPlaybackProgress(long positionMs, long durationMs);
 }
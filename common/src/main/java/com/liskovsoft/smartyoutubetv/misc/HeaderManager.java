@@ -4,12 +4,21 @@ import android.content.Context;
 import com.liskovsoft.smartyoutubetv.prefs.CommonParams;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 
+import okhttp3.Headers;
+
 import java.util.HashMap;
 
+/**
+ * Common headers of the YouTube requests.<br/>
+ * Headers are kept as immutable snapshot. Snapshot is rebuilt only when auth/cookie values in {@link SmartPreferences} are changed,
+ * so it could be attached to the request without copying and without leaking per request overrides.
+ */
 public class HeaderManager {
     private final Context mContext;
     private final SmartPreferences mPrefs;
-    private HashMap<String, String> mHeaders;
+    private Headers mBaseHeaders;
+    private volatile Headers mSnapshot;
+    private volatile int mSnapshotVersion;
     private String mRootUrl = "https://www.youtube.com/tv";
     private String mOriginUrl = "https://www.youtube.com";
 
@@ -34,22 +43,52 @@ public class HeaderManager {
         initHeaders();
     }
 
+    /**
+     * Mutable copy of the current headers. Changes don't affect other requests.
+     */
     public HashMap<String, String> getHeaders() {
-        updateHeaders();
-        return mHeaders;
+        Headers snapshot = getHeaderSnapshot();
+        HashMap<String, String> result = new HashMap<>();
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            result.put(snapshot.name(i), snapshot.value(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * Current headers. Use {@link Headers#newBuilder()} to add per request values.
+     */
+    public Headers getHeaderSnapshot() {
+        int version = mPrefs.getHeadersVersion();
+        Headers snapshot = mSnapshot;
+
+        if (snapshot != null && version == mSnapshotVersion) {
+            return snapshot;
+        }
+
+        synchronized (this) {
+            if (mSnapshot == null || version != mSnapshotVersion) {
+                mSnapshot = buildSnapshot();
+                mSnapshotVersion = version;
+            }
+
+            return mSnapshot;
+        }
     }
 
     private void initHeaders() {
-        mHeaders = new HashMap<>();
+        Headers.Builder headers = new Headers.Builder();
 
-        mHeaders.put("Origin", mOriginUrl);
-        mHeaders.put("Referer", mRootUrl);
-        mHeaders.put("User-Agent", new UserAgentManager().getUA());
-        mHeaders.put("Accept-Language", new LangUpdater(mContext).getPreferredBrowserLocale());
-        mHeaders.put("Accept-Encoding", ACCEPT_COMPRESSION);
-        mHeaders.put("Accept", ACCEPT_PATTERN);
+        headers.set("Origin", mOriginUrl);
+        headers.set("Referer", mRootUrl);
+        headers.set("User-Agent", new UserAgentManager().getUA());
+        headers.set("Accept-Language", new LangUpdater(mContext).getPreferredBrowserLocale());
+        headers.set("Accept-Encoding", ACCEPT_COMPRESSION);
+        headers.set("Accept", ACCEPT_PATTERN);
 
-        mHeaders.put("X-Requested-With", ORIGINAL_PACKAGE);
+        headers.set("X-Requested-With", ORIGINAL_PACKAGE);
 
         // cause empty response from video_info with unlocked hls streams (c=HTML5)
         //mHeaders.put("X-YouTube-Client-Name", "TVHTML5");
@@ -64,31 +103,37 @@ public class HeaderManager {
         //mHeaders.put("X-YouTube-Client-Version", CLIENT_VERSION);
         //mHeaders.put("X-YouTube-Page-CL", PAGE_CL);
         //mHeaders.put("X-YouTube-Page-Label", PAGE_LABEL);
+
+        mBaseHeaders = headers.build();
     }
 
-    private void updateHeaders() {
-        String authorization = mPrefs.getAuthorizationHeader(); // DON'T CACHE: value changed over time
+    private Headers buildSnapshot() {
+        Headers.Builder headers = mBaseHeaders.newBuilder();
+
+        String authorization = mPrefs.getAuthorizationHeader(); // value changed over time (see getHeadersVersion)
 
         if (authorization != null) {
-            mHeaders.put("Authorization", authorization);
+            headers.set("Authorization", authorization);
         }
 
-        String cookies = mPrefs.getCookieHeader(); // DON'T CACHE: value changed over time
+        String cookies = mPrefs.getCookieHeader();
 
         if (cookies != null) {
-            mHeaders.put("Cookie", cookies);
+            headers.set("Cookie", cookies);
         }
 
-        String visitorId = mPrefs.getVisitorIdHeader(); // DON'T CACHE: value changed over time
+        String visitorId = mPrefs.getVisitorIdHeader();
 
         if (visitorId != null) {
-            mHeaders.put("X-Goog-Visitor-Id", visitorId);
+            headers.set("X-Goog-Visitor-Id", visitorId);
         }
 
-        String clientData = mPrefs.getClientDataHeader(); // DON'T CACHE: value changed over time
+        String clientData = mPrefs.getClientDataHeader();
 
         if (clientData != null) {
-            mHeaders.put("X-Client-Data", clientData);
+            headers.set("X-Client-Data", clientData);
         }
+
+        return headers.build();
     }
 }
@@ -0,0 +1,256 @@
+package com.liskovsoft.smartyoutubetv.misc;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.okhttp.OkHttpHelpers;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One http client for the whole app.<br/>
+ * Player data sources are built on top of the {@link OkHttpHelpers} client,
+ * so segment fetches and api calls share connection pool (keep-alive, http/2) and dns cache.<br/>
+ * Concurrent requests to the same host are limited. Connection to the video host could be opened in advance (see {@link #prewarm(String)}).
+ */
+public class OkHttpManager {
+    private static final String TAG = OkHttpManager.class.getSimpleName();
+    private static final int MAX_REQUESTS_PER_HOST = 6;
+    private static final long HOST_WAIT_MS = 10_000;
+    private static final long SEGMENT_WAIT_MS = 2_000;
+    private static final String SEGMENT_PATH = "/videoplayback";
+    private static final long PREWARM_INTERVAL_MS = 60_000;
+    private static final String PREWARM_PATH = "/generate_204";
+    private static OkHttpManager sInstance;
+    private final OkHttpClient mClient;
+    private final Map<String, Semaphore> mHostLimits = new HashMap<>();
+    private final Map<String, Long> mPrewarmTimes = new HashMap<>();
+
+    public static synchronized OkHttpManager instance() {
+        if (sInstance == null) {
+            sInstance = new OkHttpManager();
+        }
+
+        return sInstance;
+    }
+
+    private OkHttpManager() {
+        // NOTE: newBuilder shares connection pool and dispatcher with the origin
+        mClient = OkHttpHelpers.getOkHttpClient()
+                .newBuilder()
+                .addInterceptor(new HostLimitInterceptor())
+                .build();
+    }
+
+    public OkHttpClient getClient() {
+        return mClient;
+    }
+
+    /**
+     * @param headers immutable snapshot (see {@link HeaderManager#getHeaderSnapshot()})
+     * @return response or null on error
+     */
+    public Response doGet(String url, Headers headers) {
+        return execute(url, headers, null);
+    }
+
+    /**
+     * @param headers immutable snapshot (see {@link HeaderManager#getHeaderSnapshot()})
+     * @return response or null on error
+     */
+    public Response doPost(String url, Headers headers, String body, String contentType) {
+        return execute(url, headers, RequestBody.create(MediaType.parse(contentType), body));
+    }
+
+    private Response execute(String url, Headers headers, RequestBody postBody) {
+        try {
+            Request.Builder builder = new Request.Builder().url(url).headers(headers);
+
+            if (postBody != null) {
+                builder.post(postBody);
+            }
+
+            return mClient.newCall(builder.build()).execute();
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Request failed: " + url + " " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Open connection to the host of the url before the player needs it
+     *
+     * @param url any url on the target host
+     */
+    public void prewarm(String url) {
+        HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+
+        if (httpUrl == null) {
+            return;
+        }
+
+        String host = httpUrl.host();
+
+        synchronized (mPrewarmTimes) {
+            Long lastTime = mPrewarmTimes.get(host);
+            long now = System.currentTimeMillis();
+
+            if (lastTime != null && now - lastTime < PREWARM_INTERVAL_MS) {
+                return;
+            }
+
+            mPrewarmTimes.put(host, now);
+        }
+
+        Log.d(TAG, "Prewarming connection to " + host);
+
+        Request request = new Request.Builder()
+                .url(httpUrl.newBuilder().encodedPath(PREWARM_PATH).query(null).build())
+                .head()
+                .build();
+
+        mClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.d(TAG, "Prewarm failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close(); // connection returns to the pool
+            }
+        });
+    }
+
+    private Semaphore getHostLimit(String host) {
+        synchronized (mHostLimits) {
+            Semaphore limit = mHostLimits.get(host);
+
+            if (limit == null) {
+                limit = new Semaphore(MAX_REQUESTS_PER_HOST);
+                mHostLimits.put(host, limit);
+            }
+
+            return limit;
+        }
+    }
+
+    /**
+     * Permit is held till the response body is fully read or closed.<br/>
+     * Player uses synchronous calls so dispatcher limits don't work for it.<br/>
+     * Request fails when no permit is freed in time. Usually that means some caller doesn't close the body.
+     * Player retries failed segments itself, so it waits much less.
+     */
+    private class HostLimitInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            HttpUrl url = chain.request().url();
+            Semaphore limit = getHostLimit(url.host());
+            long waitMs = url.encodedPath().startsWith(SEGMENT_PATH) ? SEGMENT_WAIT_MS : HOST_WAIT_MS;
+            boolean acquired;
+
+            try {
+                acquired = limit.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the host", e);
+            }
+
+            if (!acquired) {
+                String message = String.format("Host limit timeout: %s. Outstanding requests: %s",
+                        url.host(), MAX_REQUESTS_PER_HOST - limit.availablePermits());
+                Log.e(TAG, message);
+                throw new IOException(message);
+            }
+
+            Response response;
+
+            try {
+                response = chain.proceed(chain.request());
+            } catch (IOException | RuntimeException e) {
+                limit.release();
+                throw e;
+            }
+
+            if (response.body() == null) {
+                limit.release();
+                return response;
+            }
+
+            return response.newBuilder()
+                    .body(new ReleasingBody(response.body(), limit))
+                    .build();
+        }
+    }
+
+    private static class ReleasingBody extends ResponseBody {
+        private final ResponseBody mBody;
+        private final BufferedSource mSource;
+        private final AtomicBoolean mReleased = new AtomicBoolean();
+
+        ReleasingBody(ResponseBody body, Semaphore limit) {
+            mBody = body;
+            mSource = Okio.buffer(new ForwardingSource(body.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long size = super.read(sink, byteCount);
+
+                    if (size == -1) { // callers don't always close consumed bodies
+                        release(limit);
+                    }
+
+                    return size;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release(limit);
+                    }
+                }
+            });
+        }
+
+        private void release(Semaphore limit) {
+            if (mReleased.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+
+        @Override
+        public MediaType contentType() {
+            return mBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return mBody.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return mSource;
+        }
+    }
+}
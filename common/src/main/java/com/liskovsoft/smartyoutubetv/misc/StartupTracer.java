@@ -0,0 +1,236 @@
+package com.liskovsoft.smartyoutubetv.misc;
+
+import android.content.Context;
+import android.os.Build;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Play-start trace of the recently opened videos.<br/>
+ * Trace begins when video info is requested. Each stage is stored as an offset (ms, monotonic clock) from the beginning.<br/>
+ * Last {@link #MAX_TRACES} traces are kept in memory. They could be exported to a file ({@link #export(Context)})
+ * or summarized as percentiles ({@link #getPercentile(String, int)}).
+ */
+public class StartupTracer {
+    private static final String TAG = StartupTracer.class.getSimpleName();
+    public static final String STAGE_VIDEO_INFO = "video_info"; // get_video_info received
+    public static final String STAGE_DECIPHER_REQUEST = "decipher_request"; // signatures sent to the WebView
+    public static final String STAGE_DECIPHER_DONE = "decipher_done";
+    public static final String STAGE_MPD = "mpd"; // manifest is built, player is opening
+    public static final String STAGE_PLAYER_INIT = "player_init";
+    public static final String STAGE_SOURCE = "source"; // manifest is parsed by the player
+    public static final String STAGE_FIRST_SEGMENT = "first_segment";
+    public static final String STAGE_FIRST_FRAME = "first_frame";
+    public static final String STAGE_PREFERRED_QUALITY = "preferred_quality"; // user's quality is being decoded
+    private static final String[] STAGES = {
+            STAGE_VIDEO_INFO, STAGE_DECIPHER_REQUEST, STAGE_DECIPHER_DONE, STAGE_MPD,
+            STAGE_PLAYER_INIT, STAGE_SOURCE, STAGE_FIRST_SEGMENT, STAGE_FIRST_FRAME, STAGE_PREFERRED_QUALITY
+    };
+    private static final int MAX_TRACES = 50;
+    private static final String EXPORT_FILE = "startup_traces.tsv";
+    private static StartupTracer sInstance;
+    private final ArrayDeque<Trace> mTraces = new ArrayDeque<>(MAX_TRACES + 1);
+    private final ExecutorService mExportExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadLocal<Boolean> mSuppressed = new ThreadLocal<>();
+    private Trace mCurrent;
+
+    public static synchronized StartupTracer instance() {
+        if (sInstance == null) {
+            sInstance = new StartupTracer();
+        }
+
+        return sInstance;
+    }
+
+    private StartupTracer() {
+    }
+
+    /**
+     * New video is requested
+     */
+    public synchronized void begin(String videoId) {
+        mCurrent = new Trace(videoId);
+        mTraces.addLast(mCurrent);
+
+        if (mTraces.size() > MAX_TRACES) {
+            mTraces.removeFirst();
+        }
+    }
+
+    /**
+     * Drop marks of the calling thread, e.g. when other video is parsed in background
+     */
+    public void setSuppressed(boolean suppressed) {
+        if (suppressed) {
+            mSuppressed.set(true);
+        } else {
+            mSuppressed.remove();
+        }
+    }
+
+    /**
+     * Mark stage of the current video
+     */
+    public void mark(String stage) {
+        mark(null, stage);
+    }
+
+    /**
+     * Mark stage of the current video. Only the first mark of the stage is stored.
+     * @param videoId marks of the other (stale) video are dropped. Null means the current video.
+     */
+    public synchronized void mark(String videoId, String stage) {
+        if (mSuppressed.get() != null) {
+            return;
+        }
+
+        Trace trace = mCurrent;
+
+        if (trace == null || (videoId != null && !videoId.equals(trace.mVideoId))) {
+            return;
+        }
+
+        if (trace.mStages.containsKey(stage)) {
+            return;
+        }
+
+        trace.mStages.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - trace.mStartNanos));
+
+        if (STAGE_FIRST_FRAME.equals(stage)) {
+            Log.d(TAG, "Video " + trace.mVideoId + " started. Stages (ms): " + trace.mStages);
+        }
+    }
+
+    /**
+     * Nearest-rank percentile of the stage offset across the stored traces
+     * @return ms or -1 if there's no samples
+     */
+    public synchronized long getPercentile(String stage, int percent) {
+        List<Long> samples = new ArrayList<>();
+
+        for (Trace trace : mTraces) {
+            Long offset = trace.mStages.get(stage);
+
+            if (offset != null) {
+                samples.add(offset);
+            }
+        }
+
+        if (samples.isEmpty()) {
+            return -1;
+        }
+
+        Collections.sort(samples);
+
+        int rank = (int) Math.ceil(percent / 100f * samples.size());
+
+        return samples.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Same as {@link #export(Context)} but in background. Exports are serialized, so the file isn't written twice at once.
+     */
+    public void exportAsync(Context context) {
+        Context appContext = context.getApplicationContext();
+        mExportExecutor.execute(() -> export(appContext));
+    }
+
+    /**
+     * Write stored traces as tab separated table (one video per line)
+     * @return exported file or null on error
+     */
+    public File export(Context context) {
+        List<Trace> traces;
+
+        synchronized (this) {
+            traces = new ArrayList<>();
+
+            for (Trace trace : mTraces) {
+                traces.add(trace.copy());
+            }
+        }
+
+        File dir = context.getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : context.getFilesDir(), EXPORT_FILE);
+
+        Writer writer = null;
+
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            writer.write(String.format("# %s %s, sdk %s\n", Build.MANUFACTURER, Build.MODEL, Build.VERSION.SDK_INT));
+            writer.write("video_id");
+
+            for (String stage : STAGES) {
+                writer.write("\t" + stage);
+            }
+
+            writer.write("\n");
+
+            for (Trace trace : traces) {
+                writer.write(String.valueOf(trace.mVideoId));
+
+                for (String stage : STAGES) {
+                    Long offset = trace.mStages.get(stage);
+                    writer.write("\t" + (offset != null ? offset : ""));
+                }
+
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't export traces: " + e.getMessage());
+            return null;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        Log.d(TAG, "Traces exported: " + file);
+
+        return file;
+    }
+
+    private static class Trace {
+        private final String mVideoId;
+        private final long mStartNanos;
+        private final Map<String, Long> mStages = new LinkedHashMap<>();
+
+        Trace(String videoId) {
+            this(videoId, System.nanoTime());
+        }
+
+        private Trace(String videoId, long startNanos) {
+            mVideoId = videoId;
+            mStartNanos = startNanos;
+        }
+
+        Trace copy() {
+            Trace trace = new Trace(mVideoId, mStartNanos);
+            trace.mStages.putAll(mStages);
+            return trace;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.liskovsoft.smartyoutubetv.prefs;
 
 import android.content.Context;
+import android.text.TextUtils;
 import com.liskovsoft.sharedutils.mylogger.Log;
 
 public final class SmartPreferences extends SmartPreferencesBase {
@@ -99,6 +100,7 @@ public final class SmartPreferences extends SmartPreferencesBase {
     private long mVideoActionTimeMS;
     private String mVisitorIdHeader;
     private String mClientDataHeader;
+    private volatile int mHeadersVersion;
     private String mInterceptUserAgent;
     private boolean mIsLanguageChanged;
 
@@ -402,7 +404,10 @@ public final class SmartPreferences extends SmartPreferencesBase {
     }
 
     public void setAuthorizationHeader(String header) {
-        mAuthorizationHeader = header;
+        if (!TextUtils.equals(mAuthorizationHeader, header)) {
+            mAuthorizationHeader = header;
+            mHeadersVersion++;
+        }
     }
 
     public String getAuthorizationHeader() {
@@ -410,7 +415,10 @@ public final class SmartPreferences extends SmartPreferencesBase {
     }
 
     public void setVisitorIdHeader(String header) {
-        mVisitorIdHeader = header;
+        if (!TextUtils.equals(mVisitorIdHeader, header)) {
+            mVisitorIdHeader = header;
+            mHeadersVersion++;
+        }
     }
 
     public String getVisitorIdHeader() {
@@ -418,7 +426,10 @@ public final class SmartPreferences extends SmartPreferencesBase {
     }
 
     public void setClientDataHeader(String header) {
-        mClientDataHeader = header;
+        if (!TextUtils.equals(mClientDataHeader, header)) {
+            mClientDataHeader = header;
+            mHeadersVersion++;
+        }
     }
 
     public String getClientDataHeader() {
@@ -426,13 +437,23 @@ public final class SmartPreferences extends SmartPreferencesBase {
     }
 
     public void setCookieHeader(String header) {
-        mCookieHeader = header;
+        if (!TextUtils.equals(mCookieHeader, header)) {
+            mCookieHeader = header;
+            mHeadersVersion++;
+        }
     }
 
     public String getCookieHeader() {
         return mCookieHeader;
     }
 
+    /**
+     * Incremented when any of the auth/cookie/visitor/client data headers has changed
+     */
+    public int getHeadersVersion() {
+        return mHeadersVersion;
+    }
+
     public String getDefaultDisplayMode() {
         return mDefaultDisplayMode;
     }
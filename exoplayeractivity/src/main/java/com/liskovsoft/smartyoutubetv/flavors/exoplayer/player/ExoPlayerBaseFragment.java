@@ -28,6 +28,7 @@ import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.dialogs.afr.AfrDia
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.dialogs.restrictcodec.RestrictFormatDialogSource;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.dialogs.speed.SpeedDialogSource;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.dialogs.zoom.VideoZoomDialogSource;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.BandwidthMeterHolder;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ExoIntent;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.ExoPreferences;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.MyDebugViewHelper;
@@ -81,6 +82,7 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
     public static final String VIDEO_POSITION = "video_position";
     public static final String PERCENT_WATCHED = "percent_watched";
     public static final String VIDEO_STARTED = "video_started";
+    private static final long PROGRESS_INTERVAL_MS = 10_000;
 
     private int mInterfaceVisibilityState = View.INVISIBLE;
     private boolean mIsDurationSet;
@@ -90,10 +92,13 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
     private PlayerInitializer mPlayerInitializer;
     private MyDebugViewHelper mDebugViewHelper;
     private PlayerStateManager mStateManager;
+    private ExoPlayerManager mPreviewManager;
     private VideoZoomManager mVideoZoomManager;
     private List<PlayerEventListener> mListeners;
     private boolean mIsAfrApplying;
     private boolean mPlaybackStopped;
+    private final Handler mHandler = new Handler();
+    private final Runnable mProgressReporter = this::reportProgress;
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -144,13 +149,22 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
         PreviewTimeBar previewTimeBar = mSimpleExoPlayerView.findViewById(R.id.exo_progress);
         String spec = getIntent().getStringExtra(ExoPlayerFragment.STORYBOARD_SPEC);
 
-        previewTimeBar.setPreviewLoader(
-                new ExoPlayerManager(
-                        previewTimeBar,
-                        getView().findViewById(R.id.imageView),
-                        new YouTubeStoryParser(spec).extractStory()
-                )
+        releaseTimelinePreviews();
+
+        mPreviewManager = new ExoPlayerManager(
+                previewTimeBar,
+                getView().findViewById(R.id.imageView),
+                new YouTubeStoryParser(spec).extractStory()
         );
+
+        previewTimeBar.setPreviewLoader(mPreviewManager);
+    }
+
+    private void releaseTimelinePreviews() {
+        if (mPreviewManager != null) {
+            mPreviewManager.release();
+            mPreviewManager = null;
+        }
     }
 
     /**
@@ -162,8 +176,9 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
 
         mTrackSelector = new MyDefaultTrackSelector(trackSelectionFactory, getActivity());
 
+        // adaptive mode: bitrate is chosen by the bandwidth estimate
         mTrackSelector.setParameters(mTrackSelector.buildUponParameters()
-                .setForceHighestSupportedBitrate(true));
+                .setForceHighestSupportedBitrate(!ExoPreferences.instance(getActivity()).isAdaptiveBitrateEnabled()));
 
         // Commented out because of bug: can't instantiate OMX decoder...
         // NOTE: 'Tunneled video playback' (HDR and others) (https://medium.com/google-exoplayer/tunneled-video-playback-in-exoplayer-84f084a8094d)
@@ -465,6 +480,7 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
             updateResumePosition(); // save position
             mPlayer.setPlayWhenReady(false);
             mPlayer.release();
+            BandwidthMeterHolder.instance(getActivity()).persistEstimate();
             resetUiState();
             mKeyHandler.setDisableEvents(true);
         }
@@ -481,6 +497,9 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
             mDebugViewHelper.stop();
         }
 
+        updateProgressReporter(false);
+        releaseTimelinePreviews();
+
         mPlayer = null;
         mStateManager = null; // force restore state
         mDebugViewHelper = null;
@@ -523,6 +542,8 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
             mSimpleExoPlayerView.setKeepScreenOn(playWhenReady && playbackState == Player.STATE_READY);
         }
 
+        updateProgressReporter(playWhenReady && playbackState == Player.STATE_READY);
+
         SpeedDialogSource.handlePlayerState(playbackState, mPlayer);
 
         showHideLoadingMessage(playbackState);
@@ -530,6 +551,27 @@ public abstract class ExoPlayerBaseFragment extends PlayerCoreFragment {
         super.onPlayerStateChanged(playWhenReady, playbackState);
     }
 
+    private void updateProgressReporter(boolean isPlaying) {
+        mHandler.removeCallbacks(mProgressReporter);
+
+        if (isPlaying) {
+            mHandler.post(mProgressReporter);
+        }
+    }
+
+    /**
+     * Notify app about the playback position (e.g. to prefetch next video in time)
+     */
+    private void reportProgress() {
+        if (mPlayer == null || getActivity() == null) {
+            return;
+        }
+
+        ((PlayerListener) getActivity()).onPlaybackProgress(mPlayer.getCurrentPosition(), mPlayer.getDuration());
+
+        mHandler.postDelayed(mProgressReporter, PROGRESS_INTERVAL_MS);
+    }
+
     /**
      * Reset player's title and show loading
      */
@@ -16,10 +16,10 @@ import android.widget.LinearLayout;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import com.google.android.exoplayer2.C;
-import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.ExoPlayerFactory;
+import com.google.android.exoplayer2.LoadControl;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.RenderersFactory;
 import com.google.android.exoplayer2.SimpleExoPlayer;
@@ -51,7 +51,6 @@ import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.ui.PlayerControlView;
 import com.google.android.exoplayer2.ui.PlayerView;
 import com.google.android.exoplayer2.upstream.DataSource;
-import com.google.android.exoplayer2.upstream.DefaultAllocator;
 import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
 import com.google.android.exoplayer2.util.EventLogger;
@@ -63,13 +62,19 @@ import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.CommonApplication;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.BandwidthMeterHolder;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ExtendedDataHolder;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ManifestRegistry;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.PlayerUtil;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.SegmentCache;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.MemoryAwareLoadControl;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.MyDashManifestParser;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.PlayerInterface;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.StartupTraceListener;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.subalignment.MyDefaultRenderersFactory;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.subalignment.SubtitleRendererDecorator;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.widgets.TextToggleButton;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 
 import java.io.IOException;
@@ -81,7 +86,6 @@ import java.util.UUID;
 
 public abstract class PlayerCoreFragment extends Fragment implements OnClickListener, Player.EventListener, PlayerControlView.VisibilityListener, PlayerInterface {
     private static final String TAG = PlayerCoreFragment.class.getName();
-    private static final DefaultBandwidthMeter BANDWIDTH_METER = new DefaultBandwidthMeter();
     private static final CookieManager DEFAULT_COOKIE_MANAGER;
     
     public static final String DRM_SCHEME_UUID_EXTRA = "drm_scheme_uuid";
@@ -97,6 +101,7 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
     public static final String EXTENSION_LIST_EXTRA = "extension_list";
 
     public static final String MPD_CONTENT_EXTRA = "mpd_content";
+    public static final String MANIFEST_HANDLE_EXTRA = "manifest_handle";
     private static final String COMBINED_URL_DELIMITER = "------";
 
     public static final int RENDERER_INDEX_VIDEO = 0;
@@ -131,15 +136,14 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
     private TrackGroupArray mLastSeenTrackGroupArray;
 
     protected TrackSelectionHelper mTrackSelectionHelper;
-    protected long mExtractStartMS;
-
     static {
         DEFAULT_COOKIE_MANAGER = new CookieManager();
         DEFAULT_COOKIE_MANAGER.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
     }
 
     private Intent mIntent;
-    private int mDeviceRam;
+    private long mManifestHandle = ManifestRegistry.NO_HANDLE;
+    private DashManifest mManifest;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -160,7 +164,7 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
 
         // shouldAutoPlay = true;
         clearResumePosition();
-        mMediaDataSourceFactory = buildDataSourceFactory(false);
+        mMediaDataSourceFactory = SegmentCache.instance(getContext()).wrap(buildDataSourceFactory(false));
         mMainHandler = new Handler();
 
         if (CookieHandler.getDefault() != DEFAULT_COOKIE_MANAGER) {
@@ -190,14 +194,6 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
         mPlayerTopBar.setVisibility(View.GONE);
 
         SubtitleRendererDecorator.configureSubtitleView(mSimpleExoPlayerView);
-
-        mDeviceRam = Helpers.getDeviceRam(getActivity());
-        // If ram is too big, bigger then max int value DeviceRam will return a negative number...
-        // use 196MB as that can only happens if device has more than 17GB of RAM, so 196 is enough and safe
-        // https://github.com/yuliskov/SmartYouTubeTV/issues/532
-        if (mDeviceRam < 0) {
-            mDeviceRam = 196000000;
-        }
     }
 
     public void setIntent(Intent intent) {
@@ -217,13 +213,14 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
 
             mLastSeenTrackGroupArray = null;
 
-            mPlayer = ExoPlayerFactory.newSimpleInstance(getActivity(), getRenderersFactory(), mTrackSelector, getLoadControl(), getDrmManager(intent), BANDWIDTH_METER);
+            mPlayer = ExoPlayerFactory.newSimpleInstance(getActivity(), getRenderersFactory(), mTrackSelector, getLoadControl(), getDrmManager(intent), getBandwidthMeter());
 
             enableAudioFocus(mPlayer);
 
             //Log.d(TAG, "High Bit Depth supported ? " + VpxLibrary.isHighBitDepthSupported());
 
             mPlayer.addListener(this);
+            mPlayer.addAnalyticsListener(new StartupTraceListener());
             
             if (BuildConfig.DEBUG) {
                 mPlayer.addListener(mEventLogger);
@@ -243,6 +240,8 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
         if (needNewPlayer || mNeedRetrySource) {
             MediaSource mediaSource = null;
 
+            StartupTracer.instance().mark(StartupTracer.STAGE_PLAYER_INIT);
+
             try {
                 mediaSource = extractMediaSource(intent);
             } catch (Exception e) {
@@ -250,10 +249,15 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
                 MessageHelpers.showLongMessage(getContext(), Helpers.toString(e));
             }
 
-            if (mediaSource == null) {
+            if (mediaSource == null) { // nothing to play, don't leave black screen
+                showToast(getString(R.string.exo_video_link_error));
+                // closing player
+                onBackPressed();
                 return;
             }
 
+            StartupTracer.instance().mark(StartupTracer.STAGE_SOURCE);
+
             boolean haveResumePosition = mResumeWindow != C.INDEX_UNSET;
 
             if (haveResumePosition) {
@@ -265,11 +269,6 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
             mNeedRetrySource = false;
 
             updateButtonVisibilities();
-
-            if (BuildConfig.DEBUG) {
-                Log.d(TAG, "Video extract starting...");
-                mExtractStartMS = System.currentTimeMillis();
-            }
         }
     }
 
@@ -299,8 +298,11 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
             boolean isCombinedUri = uris[i].toString().contains(COMBINED_URL_DELIMITER);
             boolean isSimpleMpdExtra = intent.hasExtra(MPD_CONTENT_EXTRA);
             boolean isExtendedMpdExtra = ExtendedDataHolder.getInstance().hasExtra(MPD_CONTENT_EXTRA);
+            long manifestHandle = intent.getLongExtra(MANIFEST_HANDLE_EXTRA, ManifestRegistry.NO_HANDLE);
 
-            if (isSimpleMpdExtra) { // mpd content
+            if (manifestHandle != ManifestRegistry.NO_HANDLE) { // mpd stored in the registry
+                mediaSources[i] = buildMPDMediaSource(uris[i], manifestHandle);
+            } else if (isSimpleMpdExtra) { // mpd content
                 String mpdExtra = intent.getStringExtra(MPD_CONTENT_EXTRA);
                 mediaSources[i] = buildMPDMediaSource(uris[i], mpdExtra);
             } else if (isExtendedMpdExtra) { // mpd content stored externally?
@@ -315,6 +317,10 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
             } else { // url only
                 mediaSources[i] = buildMediaSource(uris[i], extensions[i]);
             }
+
+            if (mediaSources[i] == null) {
+                return null;
+            }
         }
 
         return mediaSources.length == 1 ? mediaSources[0] : new ConcatenatingMediaSource(mediaSources); // or playlist
@@ -374,34 +380,11 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
     }
 
     /**
-     * Increase player's min/max buffer size to 60 secs
+     * Buffer size depends on the user's buffer type and the free memory (see {@link MemoryAwareLoadControl})
      * @return load control
      */
-    private DefaultLoadControl getLoadControl() {
-        DefaultLoadControl.Builder baseBuilder = new DefaultLoadControl.Builder();
-        String bufferType = CommonApplication.getPreferences().getPlayerBufferType();
-
-        if (bufferType.equals(SmartPreferences.PLAYER_BUFFER_TYPE_HIGH)) {
-            int minBufferMs = 30000; // 30 seconds
-            int maxBufferMs = 36000000; // technical infinity, recommended here a very high number, the max will be based on setTargetBufferBytes() value
-            int bufferForPlaybackMs = 500; // half a seconds can be lower as lowe as 250
-            int bufferForPlaybackAfterRebufferMs = 3000; // 3 seconds
-            baseBuilder
-                    .setAllocator(new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE))
-                    .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
-                    .setTargetBufferBytes(mDeviceRam);
-        } else if (bufferType.equals(SmartPreferences.PLAYER_BUFFER_TYPE_LOW)) {
-            baseBuilder
-                    .setBufferDurationsMs(
-                    DefaultLoadControl.DEFAULT_MAX_BUFFER_MS / 3,
-                    DefaultLoadControl.DEFAULT_MAX_BUFFER_MS / 3,
-                    DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS / 3,
-                    DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS / 3);
-        }
-
-        // medium buffer by default
-
-        return baseBuilder.createDefaultLoadControl();
+    private LoadControl getLoadControl() {
+        return new MemoryAwareLoadControl(getActivity(), CommonApplication.getPreferences().getPlayerBufferType());
     }
 
     private DrmSessionManager<FrameworkMediaCrypto> getDrmManager(Intent intent) {
@@ -498,23 +481,69 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
     /**
      * Returns a new DataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link #getBandwidthMeter()} as a listener to the new
      *                          DataSource factory.
      * @return A new DataSource factory.
      */
     private DataSource.Factory buildDataSourceFactory(boolean useBandwidthMeter) {
-        return PlayerUtil.buildDataSourceFactory(this.getContext(), useBandwidthMeter ? BANDWIDTH_METER : null);
+        return PlayerUtil.buildDataSourceFactory(this.getContext(), useBandwidthMeter ? getBandwidthMeter() : null);
     }
 
     /**
      * Returns a new HttpDataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link #getBandwidthMeter()} as a listener to the new
      *                          DataSource factory.
      * @return A new HttpDataSource factory.
      */
     private HttpDataSource.Factory buildHttpDataSourceFactory(boolean useBandwidthMeter) {
-        return PlayerUtil.buildHttpDataSourceFactory(this.getContext(), useBandwidthMeter ? BANDWIDTH_METER : null);
+        return PlayerUtil.buildHttpDataSourceFactory(this.getContext(), useBandwidthMeter ? getBandwidthMeter() : null);
+    }
+
+    /**
+     * NOTE: player feeds the meter by itself (media sources add its transfer listener to the data sources).<br/>
+     * So the meter shouldn't be added to the media data sources, otherwise bytes are counted twice.
+     */
+    protected DefaultBandwidthMeter getBandwidthMeter() {
+        return BandwidthMeterHolder.instance(getActivity()).getBandwidthMeter();
+    }
+
+    /**
+     * Parsed manifest is kept for source retries, registry entry is released once playback has started
+     */
+    private MediaSource buildMPDMediaSource(Uri uri, long manifestHandle) {
+        DashManifest manifest = manifestHandle == mManifestHandle ? mManifest : null;
+
+        if (manifest == null) {
+            ManifestRegistry registry = ManifestRegistry.instance();
+            manifest = registry.getManifest(manifestHandle);
+
+            if (manifest == null) {
+                InputStream mpdContent = registry.openStream(manifestHandle);
+
+                if (mpdContent == null) {
+                    Log.e(TAG, "Can't build media source. Manifest not found: " + manifestHandle);
+                    return null;
+                }
+
+                manifest = getManifest(uri, mpdContent);
+            }
+
+            mManifestHandle = manifestHandle;
+            mManifest = manifest;
+        }
+
+        return buildMPDMediaSource(manifest);
+    }
+
+    private MediaSource buildMPDMediaSource(DashManifest manifest) {
+        DashMediaSource dashSource = new DashMediaSource.Factory(
+                new DefaultDashChunkSource.Factory(mMediaDataSourceFactory),
+                null
+            )
+            .createMediaSource(manifest);
+        dashSource.addEventListener(mMainHandler, mEventLogger);
+        return dashSource;
     }
 
     private MediaSource buildMPDMediaSource(Uri uri, InputStream mpdContent) {
@@ -785,6 +814,10 @@ public abstract class PlayerCoreFragment extends Fragment implements OnClickList
     @Override
     public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
         //updateButtonVisibilities();
+
+        if (playbackState == Player.STATE_READY && mManifestHandle != ManifestRegistry.NO_HANDLE) {
+            ManifestRegistry.instance().release(mManifestHandle);
+        }
     }
 
     @Override
@@ -5,11 +5,10 @@ import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
 import com.google.android.exoplayer2.upstream.HttpDataSource.BaseFactory;
-import com.liskovsoft.sharedutils.okhttp.OkHttpHelpers;
 import com.liskovsoft.smartyoutubetv.misc.HeaderManager;
+import com.liskovsoft.smartyoutubetv.misc.OkHttpManager;
 import com.liskovsoft.smartyoutubetv.misc.UserAgentManager;
 
 import java.util.Arrays;
@@ -24,15 +23,12 @@ public class ApplicationUtil {
         return new DefaultDataSourceFactory(context, bandwidthMeter, buildHttpDataSourceFactory(context, bandwidthMeter));
     }
 
-    //public static HttpDataSource.Factory buildHttpDataSourceFactory(Context context, DefaultBandwidthMeter bandwidthMeter) {
-    //    OkHttpDataSourceFactory dataSourceFactory = new OkHttpDataSourceFactory(OkHttpHelpers.getOkHttpClient(), USER_AGENT_MANAGER.getUA(),
-    //            bandwidthMeter);
-    //    addCommonHeaders(context, dataSourceFactory);
-    //    return dataSourceFactory;
-    //}
-
+    /**
+     * Segments and api calls share one OkHttp client (see {@link OkHttpManager})
+     */
     public static HttpDataSource.Factory buildHttpDataSourceFactory(Context context, DefaultBandwidthMeter bandwidthMeter) {
-        DefaultHttpDataSourceFactory dataSourceFactory = new DefaultHttpDataSourceFactory(USER_AGENT_MANAGER.getUA(), bandwidthMeter);
+        OkHttpDataSourceFactory dataSourceFactory = new OkHttpDataSourceFactory(OkHttpManager.instance().getClient(), USER_AGENT_MANAGER.getUA(),
+                bandwidthMeter);
         addCommonHeaders(context, dataSourceFactory); // cause troubles for some users
         return dataSourceFactory;
     }
@@ -0,0 +1,55 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers;
+
+import android.content.Context;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.ExoPreferences;
+
+/**
+ * Single bandwidth meter for all player instances.<br/>
+ * Estimate is based on the sliding window of the recent transfers (see {@link DefaultBandwidthMeter}).<br/>
+ * Last estimate is persisted, so the next session starts from the realistic bitrate instead of the country default.
+ */
+public class BandwidthMeterHolder {
+    private static final String TAG = BandwidthMeterHolder.class.getSimpleName();
+    private static BandwidthMeterHolder sInstance;
+    private final ExoPreferences mPrefs;
+    private final DefaultBandwidthMeter mBandwidthMeter;
+
+    public static synchronized BandwidthMeterHolder instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BandwidthMeterHolder(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private BandwidthMeterHolder(Context context) {
+        mPrefs = ExoPreferences.instance(context);
+
+        DefaultBandwidthMeter.Builder builder = new DefaultBandwidthMeter.Builder(context);
+        long savedEstimate = mPrefs.getBitrateEstimate();
+
+        if (savedEstimate > 0) {
+            Log.d(TAG, "Initial bitrate estimate: " + savedEstimate);
+            builder.setInitialBitrateEstimate(savedEstimate);
+        }
+
+        mBandwidthMeter = builder.build();
+    }
+
+    public DefaultBandwidthMeter getBandwidthMeter() {
+        return mBandwidthMeter;
+    }
+
+    /**
+     * @return bits per second
+     */
+    public long getBitrateEstimate() {
+        return mBandwidthMeter.getBitrateEstimate();
+    }
+
+    public void persistEstimate() {
+        mPrefs.setBitrateEstimate(getBitrateEstimate());
+    }
+}
@@ -0,0 +1,168 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers;
+
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Manifests that are waiting for the player.<br/>
+ * Content is written once by the parser side, the player reads it by handle without copying.<br/>
+ * Only the handle goes through the intent, so Binder size limit isn't an issue.<br/>
+ * Entry should be released once playback has started. Oldest entries are evicted anyway.
+ */
+public class ManifestRegistry {
+    private static final String TAG = ManifestRegistry.class.getSimpleName();
+    public static final long NO_HANDLE = 0;
+    private static final int MAX_ENTRIES = 3;
+    private static final int INITIAL_SIZE = 32 * 1024;
+    private static ManifestRegistry sInstance;
+    private final Map<Long, Entry> mEntries = new LinkedHashMap<>();
+    private long mLastHandle = NO_HANDLE;
+
+    private static class Entry {
+        private byte[] mData;
+        private int mLength;
+        private DashManifest mManifest;
+    }
+
+    /**
+     * Mpd content is written here and registered without copying (see {@link #register(ContentBuffer)})
+     */
+    public static class ContentBuffer extends ByteArrayOutputStream {
+        public ContentBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        private byte[] getData() {
+            return buf;
+        }
+    }
+
+    public static synchronized ManifestRegistry instance() {
+        if (sInstance == null) {
+            sInstance = new ManifestRegistry();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Read mpd content into the registry
+     *
+     * @return handle or {@link #NO_HANDLE} on error
+     */
+    public long register(InputStream mpdContent) {
+        if (mpdContent == null) {
+            return NO_HANDLE;
+        }
+
+        Entry entry = new Entry();
+        byte[] data = new byte[INITIAL_SIZE];
+        int length = 0;
+
+        try {
+            int size;
+
+            while ((size = mpdContent.read(data, length, data.length - length)) != -1) {
+                length += size;
+
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read mpd content: " + e.getMessage());
+            return NO_HANDLE;
+        } finally {
+            try {
+                mpdContent.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        entry.mData = data;
+        entry.mLength = length;
+
+        return put(entry);
+    }
+
+    /**
+     * Buffer is owned by the registry after this call, don't write to it anymore
+     *
+     * @return handle or {@link #NO_HANDLE} on error
+     */
+    public long register(ContentBuffer mpdContent) {
+        if (mpdContent == null) {
+            return NO_HANDLE;
+        }
+
+        Entry entry = new Entry();
+        entry.mData = mpdContent.getData();
+        entry.mLength = mpdContent.size();
+
+        return put(entry);
+    }
+
+    public long register(DashManifest manifest) {
+        if (manifest == null) {
+            return NO_HANDLE;
+        }
+
+        Entry entry = new Entry();
+        entry.mManifest = manifest;
+
+        return put(entry);
+    }
+
+    /**
+     * @return mpd content or null if entry doesn't exist or contains manifest object
+     */
+    public synchronized InputStream openStream(long handle) {
+        Entry entry = mEntries.get(handle);
+
+        if (entry == null || entry.mData == null) {
+            return null;
+        }
+
+        return new ByteArrayInputStream(entry.mData, 0, entry.mLength);
+    }
+
+    /**
+     * @return manifest object or null if entry doesn't exist or contains mpd content
+     */
+    public synchronized DashManifest getManifest(long handle) {
+        Entry entry = mEntries.get(handle);
+
+        return entry == null ? null : entry.mManifest;
+    }
+
+    public synchronized void release(long handle) {
+        if (mEntries.remove(handle) != null) {
+            Log.d(TAG, "Manifest released: " + handle);
+        }
+    }
+
+    private synchronized long put(Entry entry) {
+        long handle = ++mLastHandle;
+        mEntries.put(handle, entry);
+
+        Iterator<Long> iterator = mEntries.keySet().iterator();
+
+        while (mEntries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            long oldest = iterator.next();
+            iterator.remove();
+            Log.d(TAG, "Manifest evicted: " + oldest);
+        }
+
+        return handle;
+    }
+}
@@ -0,0 +1,263 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.google.android.exoplayer2.C;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resume positions of the recently watched videos.<br/>
+ * Keeps last {@link #CAPACITY} videos, the least recently used are evicted.<br/>
+ * Disk format is an append-only log (one "id\tposition" line per save), it's compacted when it grows too much.<br/>
+ * Disk io is done in background. Nothing blocks the caller: lookups made before the log is loaded are answered
+ * on the main thread once it's loaded, entries set before that win over the log.
+ */
+public class ResumePositionStore {
+    private static final String TAG = ResumePositionStore.class.getSimpleName();
+    private static final String LOG_FILE = "resume_positions.log";
+    private static final int CAPACITY = 500;
+    private static final int MAX_LOG_LINES = CAPACITY * 3;
+    private static final char DELIM = '\t';
+    private static ResumePositionStore sInstance;
+    private final File mLogFile;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Long> mPositions = new LinkedHashMap<String, Long>(CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private final Set<String> mChangedKeys = new HashSet<>(); // changed before the log is loaded
+    private final List<Runnable> mPendingLookups = new ArrayList<>();
+    private boolean mLoaded;
+    private int mLogLines;
+
+    public interface PositionCallback {
+        /**
+         * @param position position or {@link C#TIME_UNSET}
+         */
+        void onPosition(long position);
+    }
+
+    public static synchronized ResumePositionStore instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ResumePositionStore(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private ResumePositionStore(Context context) {
+        mLogFile = new File(context.getFilesDir(), LOG_FILE);
+        mExecutor.execute(this::load);
+    }
+
+    /**
+     * Callback is called immediately if positions are loaded, otherwise later on the main thread
+     */
+    public void getPosition(String id, PositionCallback callback) {
+        String key = sanitize(id);
+
+        synchronized (mPositions) {
+            if (!mLoaded) {
+                mPendingLookups.add(() -> callback.onPosition(getLoadedPosition(key)));
+                return;
+            }
+        }
+
+        callback.onPosition(getLoadedPosition(key));
+    }
+
+    private long getLoadedPosition(String key) {
+        synchronized (mPositions) {
+            Long position = mPositions.get(key);
+            return position == null ? C.TIME_UNSET : position;
+        }
+    }
+
+    /**
+     * @param position zero or negative removes the entry
+     */
+    public void setPosition(String id, long position) {
+        String key = sanitize(id);
+
+        synchronized (mPositions) {
+            if (!mLoaded) {
+                mChangedKeys.add(key); // don't let the log replay overwrite new value
+            }
+
+            if (position > 0) {
+                mPositions.put(key, position);
+            } else if (mPositions.remove(key) == null && mLoaded) {
+                return; // nothing to remove
+            }
+        }
+
+        // executor is serial, so the entry is appended after the log is loaded
+        mExecutor.execute(() -> append(key, position));
+    }
+
+    private void load() {
+        if (!mLogFile.exists()) {
+            onLoaded(new LinkedHashMap<>(), 0);
+            return;
+        }
+
+        Map<String, Long> positions = new LinkedHashMap<>();
+        int lines = 0;
+
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(mLogFile), "UTF-8"));
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                int delim = line.lastIndexOf(DELIM);
+
+                if (delim <= 0) {
+                    continue; // truncated line
+                }
+
+                try {
+                    long position = Long.parseLong(line.substring(delim + 1));
+                    String key = line.substring(0, delim);
+
+                    positions.remove(key); // last write is the most recent entry
+
+                    if (position > 0) {
+                        positions.put(key, position);
+                    }
+                } catch (NumberFormatException e) {
+                    // truncated line
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read positions: " + e.getMessage());
+        } finally {
+            close(reader);
+        }
+
+        onLoaded(positions, lines);
+    }
+
+    /**
+     * Entries changed while loading are newer than the log ones
+     */
+    private void onLoaded(Map<String, Long> positions, int lines) {
+        List<Runnable> lookups;
+
+        synchronized (mPositions) {
+            Map<String, Long> changed = new LinkedHashMap<>(mPositions);
+            mPositions.clear();
+
+            for (Map.Entry<String, Long> entry : positions.entrySet()) {
+                if (!mChangedKeys.contains(entry.getKey())) {
+                    mPositions.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            mPositions.putAll(changed);
+            mChangedKeys.clear();
+            mLoaded = true;
+            lookups = new ArrayList<>(mPendingLookups);
+            mPendingLookups.clear();
+        }
+
+        mLogLines = lines;
+
+        for (Runnable lookup : lookups) {
+            mHandler.post(lookup);
+        }
+    }
+
+    private void append(String key, long position) {
+        if (mLogLines >= MAX_LOG_LINES) {
+            compact();
+            return; // snapshot already contains the entry
+        }
+
+        Writer writer = null;
+
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mLogFile, true), "UTF-8"));
+            writer.write(key + DELIM + position + "\n");
+            mLogLines++;
+        } catch (IOException e) {
+            Log.e(TAG, "Can't save position: " + e.getMessage());
+        } finally {
+            close(writer);
+        }
+    }
+
+    /**
+     * Rewrite log with current entries only
+     */
+    private void compact() {
+        Map<String, Long> snapshot;
+
+        synchronized (mPositions) {
+            snapshot = new LinkedHashMap<>(mPositions);
+        }
+
+        File tmpFile = new File(mLogFile.getPath() + ".tmp");
+
+        Writer writer = null;
+
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8"));
+
+            for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+                writer.write(entry.getKey() + DELIM + entry.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't compact positions: " + e.getMessage());
+            return;
+        } finally {
+            close(writer);
+        }
+
+        if (tmpFile.renameTo(mLogFile)) {
+            mLogLines = snapshot.size();
+            Log.d(TAG, "Positions log compacted. Entries: " + mLogLines);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private static String sanitize(String id) {
+        return id.replace(DELIM, ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,331 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers;
+
+import android.content.Context;
+import android.net.Uri;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSinkFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheKeyFactory;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.Util;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.ExoPreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU disk cache of the media segments. Seek back, replay and quality switch don't download segments twice.<br/>
+ * Only googlevideo VOD urls are cached. Cache key doesn't contain volatile params (signature, expire, ip etc).<br/>
+ * Headers of the upcoming video could be downloaded in advance (see {@link #prefetch(DashManifest)}).
+ */
+public class SegmentCache implements CacheDataSource.EventListener, TransferListener {
+    private static final String TAG = SegmentCache.class.getSimpleName();
+    private static final String CACHE_DIR = "exo_segments";
+    private static final long MIN_SIZE = 32 * 1024 * 1024;
+    private static final long MAX_SIZE = 1024 * 1024 * 1024;
+    private static final int STORAGE_PERCENT = 10;
+    private static final String VIDEO_HOST = "googlevideo.com";
+    // params that identify the content (everything else is session specific)
+    private static final List<String> KEY_PARAMS = Arrays.asList("id", "itag", "lmt", "xtags", "sq", "range");
+    private static final int PREFETCH_BUFFER_SIZE = 16 * 1024;
+    private static SegmentCache sInstance;
+    private final Context mContext;
+    private final SimpleCache mCache;
+    private final AtomicLong mHitBytes = new AtomicLong();
+    private final AtomicLong mMissBytes = new AtomicLong();
+    private DataSource.Factory mPrefetchFactory;
+
+    public static synchronized SegmentCache instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SegmentCache(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private SegmentCache(Context context) {
+        mContext = context;
+        File dir = new File(context.getCacheDir(), CACHE_DIR);
+        long budget = getBudget(context, dir);
+
+        Log.d(TAG, "Segment cache budget: " + budget / 1024 / 1024 + "MB");
+
+        // NOTE: only one SimpleCache instance per folder is allowed
+        mCache = new SimpleCache(dir, new LeastRecentlyUsedCacheEvictor(budget), new ExoDatabaseProvider(context));
+    }
+
+    /**
+     * Budget from preferences or percent of the free space
+     */
+    private static long getBudget(Context context, File dir) {
+        long sizeMb = ExoPreferences.instance(context).getSegmentCacheSizeMb();
+
+        if (sizeMb > 0) {
+            return sizeMb * 1024 * 1024;
+        }
+
+        File root = dir.exists() ? dir : dir.getParentFile();
+        long budget = root.getUsableSpace() / 100 * STORAGE_PERCENT;
+
+        return Math.max(Math.min(budget, MAX_SIZE), Math.min(MIN_SIZE, root.getUsableSpace() / 2));
+    }
+
+    /**
+     * Add the cache into the data source chain
+     */
+    public DataSource.Factory wrap(DataSource.Factory upstreamFactory) {
+        DataSource.Factory countingFactory = () -> {
+            DataSource dataSource = upstreamFactory.createDataSource();
+            dataSource.addTransferListener(this);
+            return dataSource;
+        };
+
+        CacheDataSourceFactory cacheFactory = createCacheFactory(countingFactory, this);
+
+        return () -> new RoutingDataSource(cacheFactory.createDataSource(), countingFactory.createDataSource());
+    }
+
+    /**
+     * Download init and index ranges of every representation, so the player doesn't wait for them on start.<br/>
+     * Prefetched bytes aren't counted as hits or misses. Blocking call, don't run on the main thread.
+     *
+     * @return bytes cached
+     */
+    public long prefetch(DashManifest manifest) {
+        if (manifest == null || manifest.getPeriodCount() == 0) {
+            return 0;
+        }
+
+        DataSource dataSource = getPrefetchFactory().createDataSource();
+        long bytes = 0;
+
+        for (AdaptationSet set : manifest.getPeriod(0).adaptationSets) {
+            for (Representation representation : set.representations) {
+                RangedUri head = getHeadUri(representation);
+
+                // unbounded head means whole media
+                if (head == null || head.length == C.LENGTH_UNSET) {
+                    continue;
+                }
+
+                Uri uri = head.resolveUri(representation.baseUrl);
+
+                if (isCacheable(uri)) {
+                    bytes += prefetch(dataSource, new DataSpec(uri, head.start, head.length, representation.getCacheKey()));
+                }
+            }
+        }
+
+        Log.d(TAG, "Prefetched bytes: " + bytes);
+
+        return bytes;
+    }
+
+    private long prefetch(DataSource dataSource, DataSpec dataSpec) {
+        byte[] buffer = new byte[PREFETCH_BUFFER_SIZE];
+        long bytes = 0;
+
+        try {
+            dataSource.open(dataSpec);
+
+            int read;
+
+            while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                bytes += read;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Prefetch failed: " + e.getMessage());
+        } finally {
+            Util.closeQuietly(dataSource);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Init and index ranges are adjacent usually, so player loads them with one request
+     */
+    private static RangedUri getHeadUri(Representation representation) {
+        RangedUri init = representation.getInitializationUri();
+        RangedUri index = representation.getIndexUri();
+
+        if (init == null || index == null) {
+            return init != null ? init : index;
+        }
+
+        RangedUri merged = init.attemptMerge(index, representation.baseUrl);
+
+        return merged != null ? merged : init;
+    }
+
+    private synchronized DataSource.Factory getPrefetchFactory() {
+        if (mPrefetchFactory == null) {
+            mPrefetchFactory = createCacheFactory(ApplicationUtil.buildDataSourceFactory(mContext, null), null);
+        }
+
+        return mPrefetchFactory;
+    }
+
+    private CacheDataSourceFactory createCacheFactory(DataSource.Factory upstreamFactory, CacheDataSource.EventListener listener) {
+        return new CacheDataSourceFactory(
+                mCache,
+                upstreamFactory,
+                new FileDataSourceFactory(),
+                new CacheDataSinkFactory(mCache, CacheDataSink.DEFAULT_FRAGMENT_SIZE),
+                CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR,
+                listener,
+                new YouTubeCacheKeyFactory());
+    }
+
+    public long getHitBytes() {
+        return mHitBytes.get();
+    }
+
+    public long getMissBytes() {
+        return mMissBytes.get();
+    }
+
+    public long getCacheSpace() {
+        return mCache.getCacheSpace();
+    }
+
+    @Override
+    public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+        mHitBytes.addAndGet(cachedBytesRead);
+    }
+
+    @Override
+    public void onCacheIgnored(int reason) {
+        Log.d(TAG, "Cache ignored. Reason: " + reason);
+    }
+
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        // NOP
+    }
+
+    @Override
+    public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        // NOP
+    }
+
+    @Override
+    public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+        if (isNetwork && isCacheable(dataSpec.uri)) {
+            mMissBytes.addAndGet(bytesTransferred);
+        }
+    }
+
+    @Override
+    public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        // NOP
+    }
+
+    /**
+     * Manifests, live streams and other hosts aren't cached
+     */
+    private static boolean isCacheable(Uri uri) {
+        String host = uri.getHost();
+
+        if (host == null || !host.endsWith(VIDEO_HOST)) {
+            return false;
+        }
+
+        String url = uri.toString();
+
+        return !url.contains("live=1") && !url.contains("/live/1") && !url.contains("yt_live_broadcast");
+    }
+
+    /**
+     * Example: https://r3---sn-4gxb5u-qo3s.googlevideo.com/videoplayback?id=o-AD0t...&itag=137&lmt=1500318989274570&expire=1502149034&signature=8C85...<br/>
+     * Params could be written as path segments too: /videoplayback/id/o-AD0t.../itag/137/sq/5<br/>
+     * Key consists of the first path segment and {@link #KEY_PARAMS} only, so expire, signature etc. don't break it.
+     */
+    private static class YouTubeCacheKeyFactory implements CacheKeyFactory {
+        @Override
+        public String buildCacheKey(DataSpec dataSpec) {
+            if (dataSpec.key != null) {
+                return dataSpec.key;
+            }
+
+            Uri uri = dataSpec.uri;
+            List<String> segments = uri.getPathSegments();
+            StringBuilder key = new StringBuilder(segments.isEmpty() ? "" : segments.get(0));
+
+            for (String param : KEY_PARAMS) {
+                String value = uri.getQueryParameter(param);
+
+                if (value == null) {
+                    int index = segments.indexOf(param);
+                    value = index != -1 && index + 1 < segments.size() ? segments.get(index + 1) : null;
+                }
+
+                if (value != null) {
+                    key.append('|').append(param).append('=').append(value);
+                }
+            }
+
+            return key.toString();
+        }
+    }
+
+    /**
+     * Routes cacheable urls through the cache, others go directly to the upstream
+     */
+    private static class RoutingDataSource implements DataSource {
+        private final DataSource mCacheSource;
+        private final DataSource mUpstreamSource;
+        private DataSource mCurrentSource;
+
+        RoutingDataSource(DataSource cacheSource, DataSource upstreamSource) {
+            mCacheSource = cacheSource;
+            mUpstreamSource = upstreamSource;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            mCacheSource.addTransferListener(transferListener);
+            mUpstreamSource.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            mCurrentSource = isCacheable(dataSpec.uri) ? mCacheSource : mUpstreamSource;
+            return mCurrentSource.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            return mCurrentSource.read(buffer, offset, readLength);
+        }
+
+        @Override
+        public Uri getUri() {
+            return mCurrentSource == null ? null : mCurrentSource.getUri();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mCurrentSource != null) {
+                mCurrentSource.close();
+                mCurrentSource = null;
+            }
+        }
+    }
+}
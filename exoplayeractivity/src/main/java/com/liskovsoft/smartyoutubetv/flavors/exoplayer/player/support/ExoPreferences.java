@@ -31,6 +31,9 @@ public final class ExoPreferences {
     private static final String AFR_SWITCH_PAUSE_TIME = "afr_switch_pause_time";
     private static final String AFR_60FPS_CORRECTION = "afr_60fps_correction";
     private static final String AUDIO_DELAY_MS = "audio_delay_ms";
+    private static final String SEGMENT_CACHE_SIZE_MB = "segment_cache_size_mb";
+    private static final String BITRATE_ESTIMATE = "bitrate_estimate";
+    private static final String ADAPTIVE_BITRATE_ENABLED = "adaptive_bitrate_enabled";
     private boolean mForceRestoreSpeed;
 
     public static ExoPreferences instance(Context ctx) {
@@ -295,4 +298,40 @@ public final class ExoPreferences {
     public boolean isAfr60fpsCorrectionEnabled() {
         return mPrefs.getBoolean(AFR_60FPS_CORRECTION, true);
     }
+
+    /**
+     * @return cache size or 0 (size depends on free space)
+     */
+    public int getSegmentCacheSizeMb() {
+        return mPrefs.getInt(SEGMENT_CACHE_SIZE_MB, 0);
+    }
+
+    public void setSegmentCacheSizeMb(int sizeMb) {
+        mPrefs.edit()
+                .putInt(SEGMENT_CACHE_SIZE_MB, sizeMb)
+                .apply();
+    }
+
+    /**
+     * @return bits per second or 0 if not measured yet
+     */
+    public long getBitrateEstimate() {
+        return mPrefs.getLong(BITRATE_ESTIMATE, 0);
+    }
+
+    public void setBitrateEstimate(long bitrate) {
+        mPrefs.edit()
+                .putLong(BITRATE_ESTIMATE, bitrate)
+                .apply();
+    }
+
+    public boolean isAdaptiveBitrateEnabled() {
+        return mPrefs.getBoolean(ADAPTIVE_BITRATE_ENABLED, true);
+    }
+
+    public void setAdaptiveBitrateEnabled(boolean enabled) {
+        mPrefs.edit()
+                .putBoolean(ADAPTIVE_BITRATE_ENABLED, enabled)
+                .apply();
+    }
 }
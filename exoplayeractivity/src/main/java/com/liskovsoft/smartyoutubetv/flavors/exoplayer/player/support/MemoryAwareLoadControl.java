@@ -0,0 +1,271 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
+
+/**
+ * Buffer size depends on the free heap instead of the device ram.<br/>
+ * Byte target = buffer duration * bitrate of the selected tracks, but not more than part of the app heap (memory class).<br/>
+ * {@link ComponentCallbacks2#onTrimMemory(int)} shrinks the target, it regrows step by step when the memory pressure is gone.<br/>
+ * Durations are taken from the buffer type (low/medium/high) selected by the user.
+ */
+public class MemoryAwareLoadControl implements LoadControl, ComponentCallbacks2 {
+    private static final String TAG = MemoryAwareLoadControl.class.getSimpleName();
+    private static final long MB = 1024 * 1024;
+    private static final int MIN_TARGET_BYTES = (int) (8 * MB);
+    private static final long REGROW_INTERVAL_MS = 30_000;
+    private static final float BITRATE_RESERVE = 1.2f;
+    private final Context mContext;
+    private final DefaultAllocator mAllocator;
+    private final DefaultLoadControl mDelegate;
+    private final long mMaxBufferUs;
+    private final long mMinBufferUs;
+    private final long mHeapBudgetBytes;
+    private int mSelectedBitrate;
+    private float mTrimFactor = 1;
+    private long mLastTrimTimeMs;
+    private int mTargetBytes;
+    private boolean mIsCapped;
+
+    public MemoryAwareLoadControl(Context context, String bufferType) {
+        mContext = context.getApplicationContext();
+        mAllocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+
+        int minBufferMs;
+        int maxBufferMs;
+        int bufferForPlaybackMs;
+        int bufferForPlaybackAfterRebufferMs;
+        float heapFraction;
+
+        if (SmartPreferences.PLAYER_BUFFER_TYPE_HIGH.equals(bufferType)) {
+            minBufferMs = 30_000;
+            maxBufferMs = 120_000;
+            bufferForPlaybackMs = 500; // half a seconds can be lower as lowe as 250
+            bufferForPlaybackAfterRebufferMs = 3_000;
+            heapFraction = 0.5f;
+        } else if (SmartPreferences.PLAYER_BUFFER_TYPE_LOW.equals(bufferType)) {
+            minBufferMs = DefaultLoadControl.DEFAULT_MAX_BUFFER_MS / 3;
+            maxBufferMs = DefaultLoadControl.DEFAULT_MAX_BUFFER_MS / 3;
+            bufferForPlaybackMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS / 3;
+            bufferForPlaybackAfterRebufferMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS / 3;
+            heapFraction = 0.25f;
+        } else { // medium buffer by default
+            minBufferMs = DefaultLoadControl.DEFAULT_MIN_BUFFER_MS;
+            maxBufferMs = DefaultLoadControl.DEFAULT_MAX_BUFFER_MS;
+            bufferForPlaybackMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS;
+            bufferForPlaybackAfterRebufferMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS;
+            heapFraction = 0.35f;
+        }
+
+        mMaxBufferUs = C.msToUs(maxBufferMs);
+        mMinBufferUs = C.msToUs(bufferForPlaybackAfterRebufferMs);
+        mHeapBudgetBytes = calculateHeapBudget(heapFraction);
+
+        // byte limit is applied here, delegate handles durations only
+        mDelegate = new DefaultLoadControl.Builder()
+                .setAllocator(mAllocator)
+                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+                .setTargetBufferBytes(Integer.MAX_VALUE)
+                .createDefaultLoadControl();
+
+        mContext.registerComponentCallbacks(this);
+
+        updateTarget("init");
+    }
+
+    private long calculateHeapBudget(float heapFraction) {
+        ActivityManager manager = (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
+        // real limit (large heap is taken into account)
+        long heapBytes = Runtime.getRuntime().maxMemory();
+        boolean isLowRam = false;
+
+        if (manager != null) {
+            heapBytes = Math.min(heapBytes, Math.max(manager.getMemoryClass(), manager.getLargeMemoryClass()) * MB);
+            isLowRam = Build.VERSION.SDK_INT >= 19 && manager.isLowRamDevice();
+        }
+
+        if (isLowRam) {
+            heapFraction /= 2;
+        }
+
+        long budget = (long) (heapBytes * heapFraction);
+
+        Log.d(TAG, String.format("Heap: %sMB, low ram: %s, buffer budget: %sMB", heapBytes / MB, isLowRam, budget / MB));
+
+        return budget;
+    }
+
+    private synchronized void updateTarget(String reason) {
+        long budget = (long) (mHeapBudgetBytes * mTrimFactor);
+        long target = budget;
+
+        if (mSelectedBitrate > 0) {
+            long bitrateBytes = (long) (mSelectedBitrate / 8f * (mMaxBufferUs / (float) C.MICROS_PER_SECOND) * BITRATE_RESERVE);
+            target = Math.min(budget, bitrateBytes);
+        }
+
+        int newTarget = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_TARGET_BYTES, target));
+
+        if (newTarget != mTargetBytes) {
+            Log.d(TAG, String.format("Buffer target %sMB -> %sMB. Reason: %s, bitrate: %s, trim factor: %s",
+                    mTargetBytes / MB, newTarget / MB, reason, mSelectedBitrate, mTrimFactor));
+            mTargetBytes = newTarget;
+        }
+    }
+
+    /**
+     * Memory pressure has gone? Grow the buffer back.
+     */
+    private synchronized void checkRegrow() {
+        if (mTrimFactor < 1 && System.currentTimeMillis() - mLastTrimTimeMs > REGROW_INTERVAL_MS) {
+            mTrimFactor = Math.min(1, mTrimFactor * 2);
+            mLastTrimTimeMs = System.currentTimeMillis();
+            updateTarget("regrow");
+        }
+    }
+
+    private synchronized void trim(float factor, String reason) {
+        mLastTrimTimeMs = System.currentTimeMillis();
+
+        if (factor < mTrimFactor) {
+            mTrimFactor = factor;
+            updateTarget(reason);
+        }
+    }
+
+    @Override
+    public void onPrepared() {
+        mDelegate.onPrepared();
+    }
+
+    @Override
+    public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+        mDelegate.onTracksSelected(renderers, trackGroups, trackSelections);
+
+        int bitrate = 0;
+
+        for (int i = 0; i < trackSelections.length; i++) {
+            TrackSelection selection = trackSelections.get(i);
+
+            if (selection == null) {
+                continue;
+            }
+
+            int maxBitrate = 0;
+
+            // adaptive selection could switch to any of these
+            for (int j = 0; j < selection.length(); j++) {
+                Format format = selection.getFormat(j);
+
+                if (format.bitrate != Format.NO_VALUE) {
+                    maxBitrate = Math.max(maxBitrate, format.bitrate);
+                }
+            }
+
+            bitrate += maxBitrate;
+        }
+
+        synchronized (this) {
+            mSelectedBitrate = bitrate;
+            updateTarget("tracks selected");
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        mDelegate.onStopped();
+    }
+
+    @Override
+    public void onReleased() {
+        mDelegate.onReleased();
+        mContext.unregisterComponentCallbacks(this);
+    }
+
+    @Override
+    public Allocator getAllocator() {
+        return mAllocator;
+    }
+
+    @Override
+    public long getBackBufferDurationUs() {
+        return mDelegate.getBackBufferDurationUs();
+    }
+
+    @Override
+    public boolean retainBackBufferFromKeyframe() {
+        return mDelegate.retainBackBufferFromKeyframe();
+    }
+
+    @Override
+    public boolean shouldContinueLoading(long bufferedDurationUs, float playbackSpeed) {
+        if (!mDelegate.shouldContinueLoading(bufferedDurationUs, playbackSpeed)) {
+            return false;
+        }
+
+        checkRegrow();
+
+        synchronized (this) {
+            // never stop below the playback threshold, otherwise player would stuck
+            boolean isCapped = mAllocator.getTotalBytesAllocated() >= mTargetBytes && bufferedDurationUs >= mMinBufferUs;
+
+            if (isCapped != mIsCapped) {
+                Log.d(TAG, String.format("Loading %s. Allocated: %sMB, target: %sMB, buffered: %sms",
+                        isCapped ? "paused" : "resumed", mAllocator.getTotalBytesAllocated() / MB, mTargetBytes / MB, C.usToMs(bufferedDurationUs)));
+                mIsCapped = isCapped;
+            }
+
+            return !isCapped;
+        }
+    }
+
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering) {
+        boolean shouldStart = mDelegate.shouldStartPlayback(bufferedDurationUs, playbackSpeed, rebuffering);
+
+        if (shouldStart && rebuffering) {
+            synchronized (this) {
+                Log.d(TAG, String.format("Rebuffer finished. Allocated: %sMB, target: %sMB, buffered: %sms, trim factor: %s",
+                        mAllocator.getTotalBytesAllocated() / MB, mTargetBytes / MB, C.usToMs(bufferedDurationUs), mTrimFactor));
+            }
+        }
+
+        return shouldStart;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            trim(0.25f, "trim memory " + level);
+        } else if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_LOW) {
+            trim(0.5f, "trim memory " + level);
+        } else if (level == TRIM_MEMORY_RUNNING_MODERATE) {
+            trim(0.75f, "trim memory " + level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        trim(0.25f, "low memory");
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // NOP
+    }
+}
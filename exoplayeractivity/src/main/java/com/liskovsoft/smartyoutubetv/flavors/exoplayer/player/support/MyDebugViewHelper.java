@@ -43,6 +43,9 @@ import com.liskovsoft.exoplayeractivity.R;
 import com.liskovsoft.sharedutils.helpers.AppInfoHelpers;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.smartyoutubetv.CommonApplication;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.BandwidthMeterHolder;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.SegmentCache;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
 
 import java.util.Locale;
 
@@ -90,6 +93,7 @@ public final class MyDebugViewHelper implements Runnable, Player.EventListener {
         if (show) {
             mDebugViewGroup.setVisibility(View.VISIBLE);
             start();
+            StartupTracer.instance().exportAsync(mContext);
         } else {
             mDebugViewGroup.setVisibility(View.GONE);
             stop();
@@ -182,6 +186,8 @@ public final class MyDebugViewHelper implements Runnable, Player.EventListener {
 
         appendVideoInfo();
         appendOtherInfo();
+        appendCacheInfo();
+        appendStartupInfo();
         appendPlayerState();
         appendPreferredDisplayModeId();
         appendPlayerWindowIndex();
@@ -267,6 +273,27 @@ public final class MyDebugViewHelper implements Runnable, Player.EventListener {
                     + "/" +
                     counters.renderedOutputBufferCount);
         appendRow("Buffer size (seconds)", (int)(mPlayer.getBufferedPosition() - mPlayer.getCurrentPosition()) / 1_000);
+        appendRow("Bandwidth Estimate", toHumanReadable((int) Math.min(BandwidthMeterHolder.instance(mContext).getBitrateEstimate(), Integer.MAX_VALUE)));
+    }
+
+    private void appendCacheInfo() {
+        SegmentCache cache = SegmentCache.instance(mContext);
+        appendRow("Segment Cache Hit/Miss (MB)", String.format(Locale.US, "%.1f/%.1f",
+                cache.getHitBytes() / 1048576f, cache.getMissBytes() / 1048576f));
+        appendRow("Segment Cache Size (MB)", (int) (cache.getCacheSpace() / 1048576));
+    }
+
+    private void appendStartupInfo() {
+        StartupTracer tracer = StartupTracer.instance();
+        String[] stages = {StartupTracer.STAGE_VIDEO_INFO, StartupTracer.STAGE_DECIPHER_DONE, StartupTracer.STAGE_SOURCE, StartupTracer.STAGE_FIRST_FRAME};
+
+        for (String stage : stages) {
+            long p50 = tracer.getPercentile(stage, 50);
+
+            if (p50 != -1) {
+                appendRow("Start " + stage + " p50/p90 (ms)", p50 + "/" + tracer.getPercentile(stage, 90));
+            }
+        }
     }
 
     private void appendPlayerState() {
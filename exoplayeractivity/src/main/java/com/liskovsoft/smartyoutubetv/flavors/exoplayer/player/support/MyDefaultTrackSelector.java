@@ -14,7 +14,7 @@ import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.trackstate
 public class MyDefaultTrackSelector extends DefaultTrackSelector {
     private final Context mContext;
     private final PlayerStateManagerBase mStateManager;
-    private boolean mAlreadyRestored;
+    private TrackGroupArray mRestoredGroups;
 
     public MyDefaultTrackSelector(Factory trackSelectionFactory, Context context) {
         super(trackSelectionFactory);
@@ -48,8 +48,9 @@ public class MyDefaultTrackSelector extends DefaultTrackSelector {
         // Restore state before video starts playing
         boolean isAuto = !params.hasSelectionOverride(ExoPlayerFragment.RENDERER_INDEX_VIDEO, groups);
 
-        if (isAuto && !mAlreadyRestored) {
-            mAlreadyRestored = true;
+        // once per video (user could select auto quality later)
+        if (isAuto && !groups.equals(mRestoredGroups)) {
+            mRestoredGroups = groups;
             restoreVideoTrack(groups);
         }
 
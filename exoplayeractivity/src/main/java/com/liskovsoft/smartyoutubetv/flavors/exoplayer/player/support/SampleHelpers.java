@@ -3,9 +3,10 @@ package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
-import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.ExoPlayerFragment;
-// import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ExtendedDataHolder;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ManifestRegistry;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ManifestRegistry.ContentBuffer;
 
 import java.io.InputStream;
 import java.util.List;
@@ -27,6 +28,20 @@ public final class SampleHelpers {
         return new MPDSample("Sample Video", "https://example.com/test.mpd", mpdPlaylist);
     }
 
+    /**
+     * Content is moved into the {@link ManifestRegistry} as is
+     */
+    public static Sample buildFromMPDPlaylist(ContentBuffer mpdPlaylist) {
+        return new MPDSample("Sample Video", "https://example.com/test.mpd", mpdPlaylist);
+    }
+
+    /**
+     * Manifest object is passed to the player as is (no xml round-trip)
+     */
+    public static Sample buildFromDashManifest(DashManifest manifest) {
+        return new ManifestSample("Sample Video", "https://example.com/test.mpd", manifest);
+    }
+
     public static Sample buildFromHlsUri(Uri hlsUrl) {
         return new UriSample("Sample Video", hlsUrl.toString(), "m3u8");
     }
@@ -74,21 +89,29 @@ public final class SampleHelpers {
     public static final class MPDSample extends Sample {
         public final String mUri;
         public final String mExtension;
-        private final String mMpdContent;
+        private final long mManifestHandle;
 
         public MPDSample(String name, String uri, InputStream mpdStream) {
             this(name, null, null, null, true, uri, "mpd", mpdStream);
         }
 
+        public MPDSample(String name, String uri, ContentBuffer mpdContent) {
+            super(name, null, null, null, true);
+
+            // NOTE: no copy, the buffer becomes the registry entry
+            mManifestHandle = ManifestRegistry.instance().register(mpdContent);
+
+            mExtension = "mpd";
+            mUri = uri;
+        }
+
         public MPDSample(String name, UUID drmSchemeUuid, String drmLicenseUrl,
                          String[] drmKeyRequestProperties, boolean preferExtensionDecoders, String uri,
                          String extension, InputStream mpdStream) {
             super(name, drmSchemeUuid, drmLicenseUrl, drmKeyRequestProperties, preferExtensionDecoders);
 
-            this.mMpdContent = Helpers.toString(mpdStream);
-
-            // NOTE: fix TransactionTooLargeException (not actual, since we're passing intent between fragments)
-            // ExtendedDataHolder.getInstance().putExtra(PlayerActivity.MPD_CONTENT_EXTRA, Helpers.toString(mpdStream));
+            // NOTE: content is read once, only the handle is passed through the intent (Binder size limit)
+            this.mManifestHandle = ManifestRegistry.instance().register(mpdStream);
 
             mExtension = extension;
             mUri = uri;
@@ -98,13 +121,37 @@ public final class SampleHelpers {
         public Intent buildIntent(Context context) {
             return super.buildIntent(context)
                     .setData(Uri.parse(mUri))
-                    .putExtra(ExoPlayerFragment.MPD_CONTENT_EXTRA, mMpdContent)
+                    .putExtra(ExoPlayerFragment.MANIFEST_HANDLE_EXTRA, mManifestHandle)
                     .putExtra(ExoPlayerFragment.EXTENSION_EXTRA, mExtension)
                     .setAction(ExoPlayerFragment.ACTION_VIEW);
         }
 
     }
 
+    public static final class ManifestSample extends Sample {
+        public final String mUri;
+        private final long mManifestHandle;
+
+        public ManifestSample(String name, String uri, DashManifest manifest) {
+            super(name, null, null, null, true);
+
+            // NOTE: manifest object can't be put into intent
+            mManifestHandle = ManifestRegistry.instance().register(manifest);
+
+            mUri = uri;
+        }
+
+        @Override
+        public Intent buildIntent(Context context) {
+            return super.buildIntent(context)
+                    .setData(Uri.parse(mUri))
+                    .putExtra(ExoPlayerFragment.MANIFEST_HANDLE_EXTRA, mManifestHandle)
+                    .putExtra(ExoPlayerFragment.EXTENSION_EXTRA, "mpd")
+                    .setAction(ExoPlayerFragment.ACTION_VIEW);
+        }
+
+    }
+
     public static final class UriSample extends Sample {
 
         public final String mUri;
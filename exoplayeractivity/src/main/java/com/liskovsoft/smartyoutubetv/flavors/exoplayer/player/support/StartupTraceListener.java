@@ -0,0 +1,26 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support;
+
+import android.view.Surface;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.source.MediaSourceEventListener.LoadEventInfo;
+import com.google.android.exoplayer2.source.MediaSourceEventListener.MediaLoadData;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
+
+/**
+ * Marks player side stages of the play-start trace (see {@link StartupTracer})
+ */
+public class StartupTraceListener implements AnalyticsListener {
+    @Override
+    public void onLoadCompleted(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+        if (mediaLoadData.dataType == C.DATA_TYPE_MEDIA) {
+            StartupTracer.instance().mark(StartupTracer.STAGE_FIRST_SEGMENT);
+        }
+    }
+
+    @Override
+    public void onRenderedFirstFrame(EventTime eventTime, @Nullable Surface surface) {
+        StartupTracer.instance().mark(StartupTracer.STAGE_FIRST_FRAME);
+    }
+}
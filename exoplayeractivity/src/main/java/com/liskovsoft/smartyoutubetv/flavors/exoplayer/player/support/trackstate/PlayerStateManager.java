@@ -1,10 +1,13 @@
 package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.trackstate;
 
-import android.os.Handler;
+import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Pair;
 import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
 import com.google.android.exoplayer2.source.TrackGroup;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
@@ -15,25 +18,30 @@ import com.liskovsoft.smartyoutubetv.CommonApplication;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.ExoPlayerBaseFragment;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.ExoPlayerFragment;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.PlayerCoreFragment;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Restores saved position, quality and subtitles of the video
+ * Restores saved position, quality and subtitles of the video<br/>
+ * Video quality is normally restored by the track selector before playback (see {@link com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.MyDefaultTrackSelector}).
+ * Otherwise it's restored as soon as the video decoder is ready.
  */
-public class PlayerStateManager extends PlayerStateManagerBase {
+public class PlayerStateManager extends PlayerStateManagerBase implements AnalyticsListener {
     private static final String TAG = PlayerStateManager.class.getSimpleName();
     private static final int RENDERER_INDEX_VIDEO = PlayerCoreFragment.RENDERER_INDEX_VIDEO;
     private static final int RENDERER_INDEX_SUBTITLE = PlayerCoreFragment.RENDERER_INDEX_SUBTITLE;
     private static final long MIN_PERSIST_DURATION_MILLIS = 10 * 60 * 1000; // don't save if total duration < 10 min (most of songs)
     private static final long MAX_TRAIL_DURATION_MILLIS = 60 * 1000; // don't save if 60 sec of unseen video remains
     private static final long MAX_START_DURATION_MILLIS = 60 * 1000; // don't save if video just starts playing < 30 sec
-    private static final long DECODER_INIT_TIME_MS = 1_000;
     private final ExoPlayerBaseFragment mPlayerFragment;
     private SimpleExoPlayer mPlayer;
     private DefaultTrackSelector mSelector;
     private static List<String> sRestored = new ArrayList<>();
+    private boolean mVideoDecoderReady;
+    private boolean mVideoRestorePending;
+    private long mStartTimeMs;
 
     public PlayerStateManager(ExoPlayerBaseFragment playerFragment, SimpleExoPlayer player, DefaultTrackSelector selector) {
         super(playerFragment.getActivity());
@@ -41,6 +49,9 @@ public class PlayerStateManager extends PlayerStateManagerBase {
         mPlayerFragment = playerFragment;
         mPlayer = player;
         mSelector = selector;
+        mStartTimeMs = SystemClock.elapsedRealtime();
+
+        mPlayer.addAnalyticsListener(this);
     }
 
     /**
@@ -74,19 +85,6 @@ public class PlayerStateManager extends PlayerStateManagerBase {
         restoreVideoTrack();
     }
 
-    /**
-     * Some decoders might not have enough time for initialization<br/>
-     * <a href="https://github.com/yuliskov/SmartYouTubeTV/issues/203">GitHub issue #203</a><br/>
-     * <a href="https://github.com/yuliskov/SmartYouTubeTV/issues/205">GitHub issue #205</a><br/>
-     */
-    private void waitCodecInit() {
-        try {
-            Thread.sleep(DECODER_INIT_TIME_MS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-    }
-
     private void restoreSubtitleTrack() {
         MappedTrackInfo info = mSelector.getCurrentMappedTrackInfo();
 
@@ -119,17 +117,26 @@ public class PlayerStateManager extends PlayerStateManagerBase {
 
         Log.d(TAG, "Real position of the video in percents: " + posPercents);
 
-        long posMs;
-
         long duration = mPlayer.getDuration();
         
-        String title = mPlayerFragment.getMainTitle() + duration; // create something like hash
+        String key = getPositionKey(duration);
 
-        if (posPercents < 0 || posPercents > 97 || sRestored.contains(title)) { // app just started, video opened
-            posMs = findProperVideoPosition(title);
+        if (posPercents < 0 || posPercents > 97 || sRestored.contains(key)) { // app just started, video opened
+            findProperVideoPosition(key, getLegacyPositionKey(duration), posMs -> seekToSavedPosition(key, posMs));
         } else {
-            posMs = (duration / 100) * posPercents;
-            sRestored.add(title); // restore from web once, then use local data
+            sRestored.add(key); // restore from web once, then use local data
+            seekToSavedPosition(key, (duration / 100) * posPercents);
+        }
+    }
+
+    /**
+     * Could be called after the store is loaded. Skipped if another video is playing or user is already watching.
+     */
+    private void seekToSavedPosition(String key, long posMs) {
+        long duration = mPlayer.getDuration();
+
+        if (!key.equals(getPositionKey(duration)) || mPlayer.getCurrentPosition() > MAX_START_DURATION_MILLIS) {
+            return;
         }
 
         if (posMs > MAX_START_DURATION_MILLIS &&
@@ -159,10 +166,68 @@ public class PlayerStateManager extends PlayerStateManagerBase {
     }
 
     /**
-     * Restore track from prefs
+     * Restore track from prefs<br/>
+     * Some decoders can't switch track before initialization<br/>
+     * <a href="https://github.com/yuliskov/SmartYouTubeTV/issues/203">GitHub issue #203</a><br/>
+     * <a href="https://github.com/yuliskov/SmartYouTubeTV/issues/205">GitHub issue #205</a><br/>
      */
     private void restoreVideoTrack() {
-        new Handler().postDelayed(this::restoreVideoTrackReal, DECODER_INIT_TIME_MS);
+        if (!isDefaultQualitySelected(RENDERER_INDEX_VIDEO)) {
+            Log.d(TAG, "Video track already restored by the track selector");
+            return;
+        }
+
+        if (mVideoDecoderReady) {
+            restoreVideoTrackReal();
+        } else {
+            mVideoRestorePending = true; // wait for the decoder
+        }
+    }
+
+    @Override
+    public void onDecoderInitialized(EventTime eventTime, int trackType, String decoderName, long initializationDurationMs) {
+        if (trackType != C.TRACK_TYPE_VIDEO) {
+            return;
+        }
+
+        mVideoDecoderReady = true;
+
+        if (mVideoRestorePending) {
+            mVideoRestorePending = false;
+            restoreVideoTrackReal();
+        }
+    }
+
+    @Override
+    public void onMediaPeriodCreated(EventTime eventTime) {
+        mStartTimeMs = SystemClock.elapsedRealtime(); // new video
+        mVideoDecoderReady = false; // decoder of the previous video could be released
+        mVideoRestorePending = false;
+    }
+
+    /**
+     * Measure the time from the video start to the moment when preferred quality is being decoded
+     */
+    @Override
+    public void onDecoderInputFormatChanged(EventTime eventTime, int trackType, Format format) {
+        if (trackType != C.TRACK_TYPE_VIDEO || mStartTimeMs == 0 || mSelector == null) {
+            return;
+        }
+
+        MappedTrackInfo info = mSelector.getCurrentMappedTrackInfo();
+
+        if (info == null) {
+            return;
+        }
+
+        TrackGroupArray groups = info.getTrackGroups(RENDERER_INDEX_VIDEO);
+        MyFormat preferred = getFormatFromOverride(groups, mSelector.getParameters().getSelectionOverride(RENDERER_INDEX_VIDEO, groups));
+
+        if (preferred != null && preferred.id != null && preferred.id.equals(format.id)) {
+            Log.d(TAG, String.format("Preferred quality %sp reached in %s ms", format.height, SystemClock.elapsedRealtime() - mStartTimeMs));
+            StartupTracer.instance().mark(StartupTracer.STAGE_PREFERRED_QUALITY);
+            mStartTimeMs = 0;
+        }
     }
 
     private void restoreVideoTrackReal() {
@@ -261,16 +326,30 @@ public class PlayerStateManager extends PlayerStateManagerBase {
             return;
         }
         long position = mPlayer.getCurrentPosition();
-        String title = mPlayerFragment.getMainTitle() + duration; // create something like hash
+        String key = getPositionKey(duration);
         boolean almostAllVideoSeen = (duration - position) < MAX_TRAIL_DURATION_MILLIS;
         boolean isVideoJustStarts = position < MAX_START_DURATION_MILLIS;
         if (almostAllVideoSeen || isVideoJustStarts) {
-            persistVideoTrackPosition(title, 0);
+            persistVideoTrackPosition(key, 0);
         } else {
-            persistVideoTrackPosition(title, position);
+            persistVideoTrackPosition(key, position);
         }
     }
 
+    /**
+     * Video id or title + duration for the content without id
+     */
+    private String getPositionKey(long duration) {
+        Intent intent = mPlayerFragment.getIntent();
+        String videoId = intent == null ? null : intent.getStringExtra(ExoPlayerFragment.VIDEO_ID);
+
+        return videoId != null ? videoId : getLegacyPositionKey(duration);
+    }
+
+    private String getLegacyPositionKey(long duration) {
+        return mPlayerFragment.getMainTitle() + duration; // create something like hash
+    }
+
     private boolean isDefaultQualitySelected(int rendererIndex) {
         if (mSelector == null) {
             return false;
@@ -3,12 +3,14 @@ package com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.trackstat
 import android.content.Context;
 import android.util.Pair;
 import androidx.annotation.NonNull;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.source.TrackGroup;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.PlayerUtil;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ResumePositionStore;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.ExoPreferences;
 
 import java.util.HashSet;
@@ -19,12 +21,14 @@ public class PlayerStateManagerBase {
     private static final int HEIGHT_PRECISION_PX = 10; // ten-pixel precision
     private static final float FPS_PRECISION = 10; // fps precision
     private final ExoPreferences mPrefs;
+    private final ResumePositionStore mPositionStore;
     private String mDefaultTrackId;
     private String mDefaultAudioTrackId;
     private String mDefaultSubtitleLang;
 
     public PlayerStateManagerBase(Context context) {
         mPrefs = ExoPreferences.instance(context);
+        mPositionStore = ResumePositionStore.instance(context); // start loading in background
     }
 
     public MyFormat findProperAudioFormat(TrackGroupArray groupArray) {
@@ -216,8 +220,24 @@ public class PlayerStateManagerBase {
         return null;
     }
 
-    public long findProperVideoPosition(String key) {
-        return mPrefs.getPosition(key);
+    /**
+     * Position store could be still loading, so the result is async
+     *
+     * @param legacyKey title + duration key that was used before (positions were stored in prefs)
+     */
+    public void findProperVideoPosition(String key, String legacyKey, ResumePositionStore.PositionCallback callback) {
+        mPositionStore.getPosition(key, position -> {
+            if (position == C.TIME_UNSET && legacyKey != null) {
+                position = mPrefs.getPosition(legacyKey);
+
+                if (position != C.TIME_UNSET) { // move to the new store
+                    mPrefs.resetPosition(legacyKey);
+                    mPositionStore.setPosition(key, position);
+                }
+            }
+
+            callback.onPosition(position);
+        });
         //return CommonApplication.getPreferences().getCurrentVideoPosition() * 1000;
     }
 
@@ -273,11 +293,7 @@ public class PlayerStateManagerBase {
     }
 
     protected void persistVideoTrackPosition(String key, long position) {
-        if (position == 0) {
-            mPrefs.resetPosition(key);
-        } else {
-            mPrefs.setPosition(key, position);
-        }
+        mPositionStore.setPosition(key, position); // zero position removes the entry
     }
 
     protected void persistSubtitleTrack(MyFormat format) {
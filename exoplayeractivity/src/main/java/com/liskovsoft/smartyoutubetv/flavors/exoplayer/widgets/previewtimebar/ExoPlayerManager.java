@@ -1,35 +1,34 @@
 package com.liskovsoft.smartyoutubetv.flavors.exoplayer.widgets.previewtimebar;
 
+import android.graphics.Bitmap;
+import android.os.SystemClock;
 import android.widget.ImageView;
-import androidx.collection.ArraySet;
-import com.bumptech.glide.request.target.Target;
 import com.github.rubensousa.previewseekbar.PreviewLoader;
 import com.google.android.exoplayer2.Player;
-import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.YouTubeStoryParser.Size;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.YouTubeStoryParser.Storyboard;
 
-import java.util.Set;
-
-public class ExoPlayerManager implements PreviewLoader {
+public class ExoPlayerManager implements PreviewLoader, StoryboardTileCache.OnSheetReadyListener {
     private static final String TAG = ExoPlayerManager.class.getSimpleName();
     private PreviewTimeBar mPreviewTimeBar;
     private ImageView mImageView;
     private final Storyboard mStoryBoard;
-    private static final int DIRECTION_RIGHT = 0;
-    private static final int DIRECTION_LEFT = 1;
+    private final StoryboardTileCache mTileCache;
+    private final TileDrawable mTileDrawable = new TileDrawable();
     private int mCurrentImgNum = -1;
-    private Set<Integer> mCachedImageNums;
-    private int mSeekDirection = DIRECTION_RIGHT;
+    private long mCurrentPosition;
+    private long mLastPreviewTimeMs;
+    private float mSeekVelocity; // media ms per real ms
     private static final int MAX_PRELOADED_IMAGES = 3;
+    private static final int PREDICTION_WINDOW_MS = 1_000;
 
     public ExoPlayerManager(PreviewTimeBar previewTimeBar,
                             ImageView imageView,
                             Storyboard storyboard) {
-        mCachedImageNums = new ArraySet<>();
         mImageView = imageView;
         mPreviewTimeBar = previewTimeBar;
         mStoryBoard = storyboard;
+        mTileCache = new StoryboardTileCache(GlideApp.with(mImageView), this);
 
         if (mStoryBoard == null) {
             mPreviewTimeBar.setPreviewEnabled(false);
@@ -37,7 +36,7 @@ public class ExoPlayerManager implements PreviewLoader {
             mPreviewTimeBar.setPreviewEnabled(true);
         }
 
-        preloadNextImage();
+        preloadImages(0, MAX_PRELOADED_IMAGES - 1);
     }
 
     public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
@@ -46,31 +45,43 @@ public class ExoPlayerManager implements PreviewLoader {
         }
     }
 
-    private void preloadNextImage() {
+    private void preloadImages(int fromImgNum, int toImgNum) {
         if (mStoryBoard == null) {
             return;
         }
 
-        for (int i = 1; i <= MAX_PRELOADED_IMAGES; i++) {
-            int imgNum = mSeekDirection == DIRECTION_RIGHT ? mCurrentImgNum + i : mCurrentImgNum - i; // get next image
-            preloadImage(imgNum);
+        int step = fromImgNum <= toImgNum ? 1 : -1;
+
+        for (int imgNum = fromImgNum; imgNum != toImgNum + step; imgNum += step) {
+            if (imgNum >= 0) {
+                mTileCache.load(imgNum, mStoryBoard.getGroupUrl(imgNum));
+            }
         }
     }
 
-    private void preloadImage(int imgNum) {
-        if (mCachedImageNums.contains(imgNum) || imgNum < 0) {
-            return;
+    /**
+     * Preload sheets that will be reached soon with the current seek speed
+     */
+    private void preloadAhead(long max) {
+        int groupDurationMS = mStoryBoard.getGroupDurationMS();
+        int lastImgNum = (int) (max / groupDurationMS);
+        long predictedPosition = mCurrentPosition + (long) (mSeekVelocity * PREDICTION_WINDOW_MS);
+        int predictedImgNum = (int) (Math.max(0, Math.min(max, predictedPosition)) / groupDurationMS);
+        int direction = mSeekVelocity < 0 ? -1 : 1;
+
+        // at least one sheet in the seek direction
+        if (predictedImgNum == mCurrentImgNum) {
+            predictedImgNum += direction;
         }
 
-        Log.d(TAG, "Oops, image #" + imgNum + " didn't cached yet");
+        int distance = Math.min(MAX_PRELOADED_IMAGES, Math.abs(predictedImgNum - mCurrentImgNum));
+        int toImgNum = Math.max(0, Math.min(lastImgNum, mCurrentImgNum + distance * direction));
 
-        mCachedImageNums.add(imgNum);
-
-        String link = mStoryBoard.getGroupUrl(imgNum);
+        if ((toImgNum - mCurrentImgNum) * direction <= 0) { // edge of the video
+            return;
+        }
 
-        GlideApp.with(mImageView)
-                .load(link)
-                .preload();
+        preloadImages(mCurrentImgNum + direction, toImgNum);
     }
 
     @Override
@@ -79,24 +90,62 @@ public class ExoPlayerManager implements PreviewLoader {
             return;
         }
 
-        int imgNum = (int) currentPosition / mStoryBoard.getGroupDurationMS();
-        long realPosMS = currentPosition % mStoryBoard.getGroupDurationMS();
-        Size size = mStoryBoard.getGroupSize();
-        GlideThumbnailTransformation transformation =
-                new GlideThumbnailTransformation(realPosMS, size.getWidth(), size.getHeight(), size.getRowCount(), size.getColCount(), size.getDurationEachMS());
+        long nowMs = SystemClock.uptimeMillis();
+
+        if (mLastPreviewTimeMs != 0 && nowMs > mLastPreviewTimeMs) {
+            mSeekVelocity = (currentPosition - mCurrentPosition) / (float) (nowMs - mLastPreviewTimeMs);
+        }
+
+        mLastPreviewTimeMs = nowMs;
+        mCurrentPosition = currentPosition;
+        mCurrentImgNum = (int) currentPosition / mStoryBoard.getGroupDurationMS();
+
+        preloadAhead(max);
+
+        // current sheet is loaded last, so it's the newest one in the cache
+        mTileCache.load(mCurrentImgNum, mStoryBoard.getGroupUrl(mCurrentImgNum));
 
-        GlideApp.with(mImageView)
-                .load(mStoryBoard.getGroupUrl(imgNum))
-                .override(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
-                .transform(transformation)
-                .into(mImageView);
+        Bitmap sheet = mTileCache.get(mCurrentImgNum);
 
-        if (mCurrentImgNum != imgNum) {
-            mSeekDirection = mCurrentImgNum < imgNum ? DIRECTION_RIGHT : DIRECTION_LEFT;
-            mCachedImageNums.add(imgNum);
-            mCurrentImgNum = imgNum;
+        if (sheet != null) {
+            showTile(sheet);
+        }
+    }
+
+    @Override
+    public void onSheetReady(int imgNum, Bitmap sheet) {
+        if (imgNum == mCurrentImgNum) {
+            showTile(sheet);
+        }
+    }
 
-            preloadNextImage();
+    /**
+     * Player is closing. Sheets go back to the pool.
+     */
+    public void release() {
+        mTileDrawable.clear();
+
+        if (mImageView.getDrawable() == mTileDrawable) {
+            mImageView.setImageDrawable(null);
+        }
+
+        mTileCache.clear();
+    }
+
+    private void showTile(Bitmap sheet) {
+        Size size = mStoryBoard.getGroupSize();
+        int width = size.getWidth() == 0 ? sheet.getWidth() / size.getColCount() : size.getWidth();
+        int height = size.getHeight() == 0 ? sheet.getHeight() / size.getRowCount() : size.getHeight();
+        long realPosMS = mCurrentPosition % mStoryBoard.getGroupDurationMS();
+        int square = (int) realPosMS / size.getDurationEachMS();
+        int row = square / size.getColCount();
+        int col = square % size.getColCount();
+
+        mTileDrawable.setTile(sheet, col * width, row * height, width, height);
+        mTileCache.pin(mCurrentImgNum);
+
+        if (mImageView.getDrawable() != mTileDrawable) {
+            mImageView.setImageDrawable(mTileDrawable);
         }
     }
-}
\ No newline at end of file
+}
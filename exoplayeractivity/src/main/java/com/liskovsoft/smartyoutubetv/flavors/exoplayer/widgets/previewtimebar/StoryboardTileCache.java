@@ -0,0 +1,129 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.widgets.previewtimebar;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.transition.Transition;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded storyboard sheets (one sheet contains rows * cols thumbnails).<br/>
+ * Each sheet is decoded only once. Glide decodes into the bitmaps from its pool and gets them back on eviction.<br/>
+ * Tiles aren't copied, they're drawn from the sheet by source rect (see {@link TileDrawable}).<br/>
+ * Sheet that is on the screen is never evicted, otherwise the drawable would draw a bitmap reused by the pool.
+ */
+public class StoryboardTileCache {
+    private static final String TAG = StoryboardTileCache.class.getSimpleName();
+    private static final int MAX_SHEETS = 5;
+    private final RequestManager mRequestManager;
+    private final OnSheetReadyListener mListener;
+    private final Map<Integer, SheetTarget> mSheets = new LinkedHashMap<>(MAX_SHEETS + 1, 0.75f, true); // access order
+    private int mPinnedImgNum = -1;
+
+    public interface OnSheetReadyListener {
+        void onSheetReady(int imgNum, Bitmap sheet);
+    }
+
+    public StoryboardTileCache(RequestManager requestManager, OnSheetReadyListener listener) {
+        mRequestManager = requestManager;
+        mListener = listener;
+    }
+
+    /**
+     * @return decoded sheet or null if it's not loaded yet
+     */
+    public Bitmap get(int imgNum) {
+        SheetTarget target = mSheets.get(imgNum);
+
+        return target == null ? null : target.mSheet;
+    }
+
+    public void load(int imgNum, String url) {
+        if (mSheets.get(imgNum) != null) { // touch
+            return;
+        }
+
+        SheetTarget target = new SheetTarget(imgNum);
+        mSheets.put(imgNum, target);
+
+        evictOldest();
+
+        mRequestManager
+                .asBitmap()
+                .load(url)
+                .format(DecodeFormat.PREFER_RGB_565) // storyboards are jpegs
+                .into(target);
+    }
+
+    /**
+     * Sheet that is shown by the drawable
+     */
+    public void pin(int imgNum) {
+        mPinnedImgNum = imgNum;
+    }
+
+    /**
+     * Drawable should be reset before, all sheets go back to the pool
+     */
+    public void clear() {
+        mPinnedImgNum = -1;
+
+        for (SheetTarget target : mSheets.values()) {
+            mRequestManager.clear(target);
+        }
+
+        mSheets.clear();
+    }
+
+    private void evictOldest() {
+        Iterator<SheetTarget> iterator = mSheets.values().iterator();
+
+        while (mSheets.size() > MAX_SHEETS && iterator.hasNext()) {
+            SheetTarget target = iterator.next();
+
+            if (target.mImgNum == mPinnedImgNum) {
+                continue;
+            }
+
+            iterator.remove();
+            mRequestManager.clear(target); // bitmap goes back to the pool
+        }
+    }
+
+    private class SheetTarget extends CustomTarget<Bitmap> {
+        private final int mImgNum;
+        private Bitmap mSheet;
+
+        SheetTarget(int imgNum) {
+            mImgNum = imgNum;
+        }
+
+        @Override
+        public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
+            mSheet = resource;
+            mListener.onSheetReady(mImgNum, resource);
+        }
+
+        @Override
+        public void onLoadCleared(@Nullable Drawable placeholder) {
+            mSheet = null;
+        }
+
+        @Override
+        public void onLoadFailed(@Nullable Drawable errorDrawable) {
+            Log.d(TAG, "Can't load storyboard sheet #" + mImgNum);
+
+            if (mSheets.get(mImgNum) == this) {
+                mSheets.remove(mImgNum); // allow retry
+            }
+        }
+    }
+}
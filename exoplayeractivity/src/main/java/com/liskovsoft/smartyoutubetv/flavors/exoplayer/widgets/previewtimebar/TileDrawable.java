@@ -0,0 +1,65 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.widgets.previewtimebar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Draws part of the storyboard sheet without copying it
+ */
+public class TileDrawable extends Drawable {
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mSrcRect = new Rect();
+    private Bitmap mSheet;
+
+    public void setTile(Bitmap sheet, int left, int top, int width, int height) {
+        mSheet = sheet;
+        mSrcRect.set(left, top, left + width, top + height);
+        invalidateSelf();
+    }
+
+    public void clear() {
+        mSheet = null;
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (mSheet != null && !mSheet.isRecycled()) {
+            canvas.drawBitmap(mSheet, mSrcRect, getBounds(), mPaint);
+        }
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mSrcRect.width();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mSrcRect.height();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.OPAQUE;
+    }
+}
@@ -1,7 +1,9 @@
 /**
  * Description:<br/>
  * Intercepts all posted data<br/>
- * It consumed the ScreenMirrorInterceptor.java and IntegratedAdInterceptor.java
+ * It consumed the ScreenMirrorInterceptor.java and IntegratedAdInterceptor.java<br/>
+ * Requests that the app replays are tagged with the id, so overlapped requests don't mix up bodies (see PostDataRegistry.java).<br/>
+ * Other requests keep their original url.
  */
 
 console.log("Scripts::Running script post_data_interceptor.js");
@@ -9,8 +11,52 @@ console.log("Scripts::Running script post_data_interceptor.js");
 function PostDataInterceptor() {
     this.TAG = 'PostDataInterceptor';
     this.MESSAGE_POST_DATA = 'message_post_data';
+    this.MESSAGE_BROWSE_POST_DATA = 'message_browse_post_data';
+    this.MESSAGE_REQUEST_POST_DATA = 'message_request_post_data';
+    this.BROWSE_URL = '/youtubei/v1/browse';
+    this.BIND_URL = '/api/lounge/bc/bind';
+    this.REQUEST_ID_PARAM = 'sytv_rid';
+    this.REQUEST_ID_PREFIX = new Date().getTime().toString(36) + '_';
+    this.requestCounter = 0;
 
-    this.interceptBody = function(body) {
-        DeviceUtils.sendMessage(this.MESSAGE_POST_DATA, body);
+    this.interceptOpen = function(method, url, async) {
+        this.url = url;
+    };
+
+    this.modifyOpen = function(args, xhr) {
+        var url = args[1];
+
+        if (!xhr || !url || !(Utils.contains(url, this.BROWSE_URL) || Utils.contains(url, this.BIND_URL))) {
+            return;
+        }
+
+        if (!DeviceUtils.isRequestTagged(url)) { // id would be sent to the server
+            return;
+        }
+
+        xhr.sytvUrl = url;
+        xhr.sytvRequestId = this.REQUEST_ID_PREFIX + (++this.requestCounter);
+        args[1] = url + (Utils.contains(url, '?') ? '&' : '?') + this.REQUEST_ID_PARAM + '=' + xhr.sytvRequestId;
+    };
+
+    this.interceptBody = function(body, xhr) {
+        var url = xhr && xhr.sytvUrl ? xhr.sytvUrl : this.url;
+
+        if (xhr && xhr.sytvRequestId) {
+            DeviceUtils.sendMessage(this.MESSAGE_REQUEST_POST_DATA, xhr.sytvRequestId + '\n' + body);
+        } else {
+            DeviceUtils.sendMessage(this.MESSAGE_POST_DATA, body);
+        }
+
+        // app could start browse request before WebView does
+        if (body && url && Utils.contains(url, this.BROWSE_URL)) {
+            DeviceUtils.sendMessage(this.MESSAGE_BROWSE_POST_DATA, this.toAbsoluteUrl(url) + '\n' + body);
+        }
+    };
+
+    this.toAbsoluteUrl = function(url) {
+        var link = document.createElement('a');
+        link.href = url;
+        return link.href;
     };
 }
@@ -42,7 +42,7 @@ function AjaxInterceptorAddon(interceptors) {
 
                     if (interceptor.modifyOpen) {
                         // method, url, async
-                        interceptor.modifyOpen(arguments);
+                        interceptor.modifyOpen(arguments, this);
                     }
                 }
 
@@ -98,7 +98,7 @@ function AjaxInterceptorAddon(interceptors) {
                 for (var i = 0; i < $this.interceptors.length; i++) {
                     var interceptor = $this.interceptors[i];
                     if (interceptor.interceptBody) {
-                        interceptor.interceptBody(arguments[0]);
+                        interceptor.interceptBody(arguments[0], this);
                     }
                 }
 
@@ -276,6 +276,10 @@ var DeviceUtils = {
 
     isBrowserInBackground: function() {
         return this.getApp().isBrowserInBackground();
+    },
+
+    isRequestTagged: function(url) {
+        return this.getApp().isRequestTagged(url);
     }
 };
 
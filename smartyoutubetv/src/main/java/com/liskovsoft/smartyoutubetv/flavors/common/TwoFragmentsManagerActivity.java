@@ -172,6 +172,13 @@ public abstract class TwoFragmentsManagerActivity extends FragmentManagerActivit
         }
     }
 
+    @Override
+    public void onPlaybackProgress(long positionMs, long durationMs) {
+        if (mPlayerListener != null) {
+            mPlayerListener.onPlaybackProgress(positionMs, durationMs);
+        }
+    }
+
     private boolean isSearch(Intent action) {
         return action.getBooleanExtra(ExoPlayerFragment.BUTTON_SEARCH, false);
     }
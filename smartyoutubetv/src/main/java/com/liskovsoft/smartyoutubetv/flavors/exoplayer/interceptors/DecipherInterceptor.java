@@ -5,6 +5,7 @@ import android.webkit.WebResourceResponse;
 import com.liskovsoft.browser.Browser;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.DecipherProgram;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.DecipherUtils;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.events.GetDecipherCodeDoneEvent;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.events.GetDecipherCodeEvent;
@@ -13,13 +14,18 @@ import com.liskovsoft.sharedutils.okhttp.OkHttpHelpers;
 import okhttp3.Response;
 
 import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
- * intercepts "tv-player.js", "tv-player-ias.js"
+ * intercepts "tv-player.js", "tv-player-ias.js"<br/>
+ * Decipher code is extracted once per player version, so the new player (after the app update on the server) is picked up
  */
 public class DecipherInterceptor extends RequestInterceptor {
     private static final String TAG = DecipherInterceptor.class.getSimpleName();
-    private String mJSDecipherCode;
+    private static final Pattern PLAYER_VERSION_PATTERN = Pattern.compile("/player/([\\w-]+)/");
+    private volatile String mJSDecipherCode;
+    private volatile String mPlayerVersion;
 
     public DecipherInterceptor(Context context) {
         super(context);
@@ -36,27 +42,54 @@ public class DecipherInterceptor extends RequestInterceptor {
     public WebResourceResponse intercept(String url) {
         Log.d(TAG, "Intercepting decipher code...");
 
-        if (mJSDecipherCode != null) { // run once
+        String playerVersion = getPlayerVersion(url);
+
+        if (playerVersion.equals(mPlayerVersion)) { // run once per player
             return null;
         }
 
-        runInOtherThread(url);
+        mPlayerVersion = playerVersion;
+
+        runInOtherThread(url, playerVersion);
 
         return null;
     }
 
-    private void runInOtherThread(final String url) {
-        new Thread(() -> cacheResponse(url)).start();
+    private void runInOtherThread(final String url, final String playerVersion) {
+        new Thread(() -> cacheResponse(url, playerVersion)).start();
     }
 
-    private void cacheResponse(String url) {
+    private void cacheResponse(String url, String playerVersion) {
         Response response = OkHttpHelpers.doOkHttpRequest(url);
-        if (response == null) {
+
+        if (response == null || response.body() == null) {
+            mPlayerVersion = null; // retry on the next request
             return;
         }
 
-        InputStream is = response.body().byteStream();
-        mJSDecipherCode = DecipherUtils.extractDecipherCode(is);
+        String jsCode;
+
+        try {
+            InputStream is = response.body().byteStream();
+            jsCode = DecipherUtils.extractDecipherCode(is);
+        } finally {
+            response.close();
+        }
+
+        if (!playerVersion.equals(mPlayerVersion)) { // newer player is loading
+            return;
+        }
+
+        mJSDecipherCode = jsCode;
+
+        // native decipher, WebView is used as fallback
+        DecipherProgram.compile(playerVersion, jsCode);
+    }
+
+    private static String getPlayerVersion(String url) {
+        Matcher matcher = PLAYER_VERSION_PATTERN.matcher(url);
+
+        return matcher.find() ? matcher.group(1) : String.valueOf(url.hashCode());
     }
 
     @Subscribe
@@ -7,20 +7,24 @@ import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.BuildConfig;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.commands.GenericCommand;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors.NextVideoPrefetcher.NextVideo;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.ExoPlayerFragment;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.wrappers.exoplayer.ExoPlayerWrapper;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.wrappers.externalplayer.ExternalPlayerWrapper;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.JsonNextParser.VideoMetadata;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.OnMediaFoundCallback;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.SimpleYouTubeInfoParser;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.YouTubeInfoParser;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.YouTubeMediaParser;
 import com.liskovsoft.smartyoutubetv.fragments.TwoFragmentManager;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyUrlEncodedQueryString;
 import com.liskovsoft.smartyoutubetv.misc.youtubeintenttranslator.YouTubeHelpers;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 
 import java.io.InputStream;
+import java.util.Map;
 
 public class ExoInterceptor extends RequestInterceptor {
     private final Context mContext;
@@ -39,6 +43,8 @@ public class ExoInterceptor extends RequestInterceptor {
     public static final String URL_TV_TRANSPORT = "gen_204";
     private final boolean mIsBeta;
     private String mOriginUrl;
+    private final VideoStartPipeline mPipeline;
+    private final NextVideoPrefetcher mPrefetcher;
 
     public ExoInterceptor(Context context,
                           DelayedCommandCallInterceptor delayedInterceptor,
@@ -54,6 +60,8 @@ public class ExoInterceptor extends RequestInterceptor {
         mManager = new BackgroundActionManager(mFragmentsManager.getKeyHandler());
         mPrefs = SmartPreferences.instance(mContext);
         mSender = new ActionsSender(mContext, this);
+        mPipeline = new VideoStartPipeline();
+        mPrefetcher = new NextVideoPrefetcher(context, nextInterceptor);
         
         boolean useExternalPlayer = !SmartPreferences.USE_EXTERNAL_PLAYER_NONE.equals(mPrefs.getUseExternalPlayer());
 
@@ -104,39 +112,77 @@ public class ExoInterceptor extends RequestInterceptor {
     }
 
     private WebResourceResponse processCurrentUrl() {
-        mExoCallback.onStart();
+        String videoId = mManager.getVideoId(mCurrentUrl);
+        String playlistId = mManager.getPlaylistId(mCurrentUrl);
+        String currentUrl = mCurrentUrl;
+
+        // previous video's stages are cancelled here
+        VideoStartPipeline.Session session = mPipeline.start(videoId);
+        StartupTracer.instance().begin(videoId);
+        OnMediaFoundCallback callback = session.wrap(mExoCallback);
+
+        callback.onStart();
+
+        // autoplay or playlist next video could be already prepared
+        NextVideo nextVideo = SmartPreferences.VIDEO_TYPE_DEFAULT.equals(mPrefs.getCurrentVideoType()) ? mPrefetcher.take(videoId) : null;
+        VideoMetadata metadata = nextVideo != null ? nextVideo.getMetadata(playlistId) : null;
 
         // Video title and other infos
         // long running code
-        new Thread(() -> {
-            mExoCallback.onMetadata(
-                    mNextInterceptor.getMetadata(
-                            mManager.getVideoId(mCurrentUrl),
-                            mManager.getPlaylistId(mCurrentUrl)));
-        }).start();
+        boolean started = session.run(VideoStartPipeline.STAGE_METADATA, () -> callback.onMetadata(metadata != null ? metadata : mNextInterceptor.getMetadata(videoId, playlistId)));
 
         // Clip content
         // long running code
-        new Thread(() -> {
+        started = started && session.run(VideoStartPipeline.STAGE_FORMATS, () -> {
             try {
-                parseAndOpenExoPlayer(getUrlData(mCurrentUrl));
+                if (nextVideo == null) {
+                    parseAndOpenExoPlayer(getUrlData(currentUrl), session, callback);
+                } else if (nextVideo.hasMedia()) {
+                    StartupTracer.instance().mark(StartupTracer.STAGE_VIDEO_INFO);
+                    nextVideo.replayMedia(callback);
+                } else {
+                    parseAndOpenExoPlayer(nextVideo.openVideoInfo(), session, callback);
+                }
             } catch (IllegalStateException e) {
+                if (session.isCancelled()) {
+                    return;
+                }
+
                 e.printStackTrace();
-                Log.e(TAG, "Url doesn't exist or its content broken: " + mCurrentUrl);
+                Log.e(TAG, "Url doesn't exist or its content broken: " + currentUrl);
                 MessageHelpers.showLongMessage(mContext, "Url doesn't exist or its content is broken. " + e.getMessage());
             }
-        }).start();
+        });
+
+        if (!started) {
+            MessageHelpers.showLongMessage(mContext, "Video start failed. Too many pending requests.");
+        }
 
         return filterVideoInfoResponse(mOriginUrl);
     }
 
     /**
-     * For parsing details see {@link YouTubeMediaParser}
+     * For parsing details see {@link YouTubeMediaParser}<br/>
+     * Parsing continues asynchronously (decipher), result is delivered through the session's callback
      */
-    private void parseAndOpenExoPlayer(InputStream inputStream) {
+    private void parseAndOpenExoPlayer(InputStream inputStream, VideoStartPipeline.Session session, OnMediaFoundCallback callback) {
         final YouTubeInfoParser dataParser = new SimpleYouTubeInfoParser(mContext, inputStream);
+
+        if (session.isCancelled()) {
+            return;
+        }
+
         Log.d(TAG, "Video manifest received");
-        dataParser.parse(mExoCallback);
+        StartupTracer.instance().mark(StartupTracer.STAGE_VIDEO_INFO);
+        session.onParseStart();
+        dataParser.parse(callback);
+    }
+
+    /**
+     * Stage durations of the last started video (time-to-first-frame tuning)
+     */
+    public Map<String, Long> getStartTimings() {
+        return mPipeline.getLastTimings();
     }
 
     public void updateLastCommand(GenericCommand command) {
@@ -149,6 +195,10 @@ public class ExoInterceptor extends RequestInterceptor {
         return mFragmentsManager;
     }
 
+    public NextVideoPrefetcher getPrefetcher() {
+        return mPrefetcher;
+    }
+
     public BackgroundActionManager getBackgroundActionManager() {
         return mManager;
     }
@@ -157,7 +207,16 @@ public class ExoInterceptor extends RequestInterceptor {
         return mCurrentUrl;
     }
 
+    /**
+     * Drop stages of the closed video, so they won't reopen the player
+     */
+    public void cancelVideoStart() {
+        mPipeline.cancel();
+    }
+
     public void closeVideo() {
+        cancelVideoStart();
+
         if (mRealExoCallback != null) { // don't response in exo mode
             return;
         }
@@ -4,9 +4,26 @@ import android.content.Context;
 import android.webkit.WebResourceResponse;
 import com.liskovsoft.smartyoutubetv.flavors.common.TwoFragmentsManagerActivity;
 import com.liskovsoft.smartyoutubetv.fragments.TwoFragmentManager;
+import com.liskovsoft.smartyoutubetv.interceptors.InterceptDecision;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
+import com.liskovsoft.smartyoutubetv.interceptors.UrlRules;
 
 public class MainExoInterceptor extends RequestInterceptor {
+    private static final String PLAYER_SCRIPT = "tv-player";
+    private static final String VIDEO_INFO = "/get_video_info";
+    private static final String NEXT = "/youtubei/v1/next";
+    private static final String BROWSE = "/youtubei/v1/browse";
+    private static final String GUIDE = "/youtubei/v1/guide";
+    private static final String PTRACKING = "/ptracking";
+    private static final String WATCHTIME = "/api/stats/watchtime";
+    private static final String LOUNGE_BIND = "/api/lounge/bc/bind";
+    static final int ROUTE_NONE = 0;
+    static final int ROUTE_DECIPHER = 1;
+    static final int ROUTE_VIDEO_INFO = 2;
+    static final int ROUTE_NEXT = 3;
+    static final int ROUTE_PLAY_END = 4;
+    static final int ROUTE_HISTORY = 5;
+    static final int ROUTE_SCREEN_MIRROR = 6;
     private final Context mContext;
     private final ExoInterceptor mExoInterceptor;
     private final DecipherInterceptor mCipherInterceptor;
@@ -14,7 +31,7 @@ public class MainExoInterceptor extends RequestInterceptor {
     private final ExoNextInterceptor mExoNextInterceptor;
     private final HistoryInterceptor mHistoryInterceptor;
     private final ScreenMirrorInterceptor mScreenMirrorInterceptor;
-    private RequestInterceptor mCurrentInterceptor;
+    private final RequestInterceptor[] mRouteHandlers;
 
     public MainExoInterceptor(Context context) {
         super(context);
@@ -26,61 +43,93 @@ public class MainExoInterceptor extends RequestInterceptor {
         mHistoryInterceptor = new HistoryInterceptor(context);
         mExoInterceptor = new ExoInterceptor(context, mDoOnPlayEndInterceptor, mExoNextInterceptor, mHistoryInterceptor);
         mScreenMirrorInterceptor = new ScreenMirrorInterceptor(context, this);
+        mRouteHandlers = createRouteHandlers(mCipherInterceptor, mExoInterceptor, mExoNextInterceptor,
+                mDoOnPlayEndInterceptor, mHistoryInterceptor, mScreenMirrorInterceptor);
+    }
+
+    /**
+     * Handlers indexed by the route constants
+     */
+    static RequestInterceptor[] createRouteHandlers(RequestInterceptor decipher, RequestInterceptor videoInfo, RequestInterceptor next,
+                                                    RequestInterceptor playEnd, RequestInterceptor history, RequestInterceptor screenMirror) {
+        RequestInterceptor[] handlers = new RequestInterceptor[ROUTE_SCREEN_MIRROR + 1];
+        handlers[ROUTE_DECIPHER] = decipher;
+        handlers[ROUTE_VIDEO_INFO] = videoInfo;
+        handlers[ROUTE_NEXT] = next;
+        handlers[ROUTE_PLAY_END] = playEnd;
+        handlers[ROUTE_HISTORY] = history;
+        handlers[ROUTE_SCREEN_MIRROR] = screenMirror;
+        return handlers;
     }
 
     @Override
-    public boolean test(String url) {
-        if (url.contains("tv-player")) {
-            mCurrentInterceptor = mCipherInterceptor;
-            return true;
+    public UrlRules getUrlRules() {
+        return createUrlRules();
+    }
+
+    /**
+     * Built from the same markers as {@link #findRoute(String)}, so every routed url passes the rules
+     */
+    static UrlRules createUrlRules() {
+        return new UrlRules().addSubstring(PLAYER_SCRIPT, VIDEO_INFO, NEXT, BROWSE, GUIDE, PTRACKING, WATCHTIME, LOUNGE_BIND);
+    }
+
+    /**
+     * Stateless: concurrent requests never share the chosen handler
+     */
+    @Override
+    public InterceptDecision route(String url) {
+        return route(url, mRouteHandlers);
+    }
+
+    static InterceptDecision route(String url, RequestInterceptor[] handlers) {
+        int route = findRoute(url);
+
+        return route == ROUTE_NONE ? InterceptDecision.SKIP : InterceptDecision.handleBy(handlers[route]);
+    }
+
+    static int findRoute(String url) {
+        if (url.contains(PLAYER_SCRIPT)) {
+            return ROUTE_DECIPHER;
         }
 
-        if (url.contains("/get_video_info")) {
-            mCurrentInterceptor = mExoInterceptor;
-            return true;
+        if (url.contains(VIDEO_INFO)) {
+            return ROUTE_VIDEO_INFO;
         }
 
-        if (url.contains("/youtubei/v1/next") ||
-            url.contains("/youtubei/v1/browse") ||
-            url.contains("/youtubei/v1/guide")) {
-            mCurrentInterceptor = mExoNextInterceptor;
-            return true;
+        if (url.contains(NEXT) ||
+            url.contains(BROWSE) ||
+            url.contains(GUIDE)) {
+            return ROUTE_NEXT;
         }
 
         // useful places: ptracking, log_event, log_interaction
         // at this moment video should be added to history
         // attention: not working when WebView restored
-        if (url.contains("/ptracking")) {
-            mCurrentInterceptor = mDoOnPlayEndInterceptor;
-            return true;
+        if (url.contains(PTRACKING)) {
+            return ROUTE_PLAY_END;
         }
 
         // history is tracked via YouTubeTracker
-        if (url.contains("/api/stats/watchtime")) {
-            mCurrentInterceptor = mHistoryInterceptor;
-            return true;
+        if (url.contains(WATCHTIME)) {
+            return ROUTE_HISTORY;
         }
 
-        if (url.contains("/api/lounge/bc/bind?device=LOUNGE_SCREEN")) {
-            mCurrentInterceptor = mScreenMirrorInterceptor;
-            return true;
+        if (url.contains(LOUNGE_BIND + "?device=LOUNGE_SCREEN")) {
+            return ROUTE_SCREEN_MIRROR;
         }
 
-        return false;
+        return ROUTE_NONE;
     }
 
     @Override
-    public WebResourceResponse intercept(String url) {
-        if (!test(url)) {
-            return null;
-        }
-
-        if (mCurrentInterceptor == null) {
-            // block url
-            return emptyResponse();
-        }
+    public boolean test(String url) {
+        return route(url).isMatched();
+    }
 
-        return mCurrentInterceptor.intercept(url);
+    @Override
+    public WebResourceResponse intercept(String url) {
+        return route(url).execute(url);
     }
 
     public ExoInterceptor getExoInterceptor() {
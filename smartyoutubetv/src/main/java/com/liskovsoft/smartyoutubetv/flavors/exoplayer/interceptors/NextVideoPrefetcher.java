@@ -0,0 +1,355 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors;
+
+import android.content.Context;
+import android.net.Uri;
+import android.text.TextUtils;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.SegmentCache;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.DecipherProgram;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.mpd.MPDBuilder;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.JsonNextParser.VideoMetadata;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.OnMediaFoundCallback;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.SimpleYouTubeInfoParser;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.YouTubeMediaParser.GenericInfo;
+import com.liskovsoft.smartyoutubetv.misc.HeaderManager;
+import com.liskovsoft.smartyoutubetv.misc.OkHttpManager;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
+import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyUrlEncodedQueryString;
+import okhttp3.Response;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prepares autoplay/playlist next video while the current one is playing.<br/>
+ * When the playback position of the current video passes the threshold, next video's info and metadata are fetched,
+ * its manifest is built and media headers are put into the {@link SegmentCache}.<br/>
+ * {@link ExoInterceptor} takes the result when the WebView asks for the same video.
+ */
+public class NextVideoPrefetcher {
+    private static final String TAG = NextVideoPrefetcher.class.getSimpleName();
+    private static final String PARAM_VIDEO_ID = "video_id";
+    private static final String PARAM_PLAYLIST_ID = "list";
+    private static final int THRESHOLD_PERCENT = 50;
+    private static final long PREFETCH_AHEAD_MS = 5 * 60 * 1000;
+    private static final long EXPIRE_TIME_MS = 30 * 60 * 1000;
+    private final Context mContext;
+    private final ExoNextInterceptor mNextInterceptor;
+    private final HeaderManager mHeaderManager;
+    private final ExecutorService mExecutor;
+    private String mPendingVideoId;
+    private String mPendingPlaylistId;
+    private String mPendingUrl;
+    private long mThresholdMs;
+    private Future<NextVideo> mResult;
+    private String mResultVideoId;
+
+    public NextVideoPrefetcher(Context context, ExoNextInterceptor nextInterceptor) {
+        mContext = context;
+        mNextInterceptor = nextInterceptor;
+        mHeaderManager = new HeaderManager(context);
+        mExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Prefetch starts when the playback reaches the half of the current video or five minutes before its end, whichever is later.<br/>
+     * Position is delivered with {@link #onProgress(long)}, so pauses and seeks are taken into account.
+     *
+     * @param currentUrl get_video_info url of the current video
+     */
+    public synchronized void schedule(String currentUrl, VideoMetadata metadata, GenericInfo info) {
+        VideoMetadata nextVideo = metadata != null ? metadata.getNextVideo() : null;
+
+        if (nextVideo == null || nextVideo.getVideoId() == null || info == null) {
+            cancel();
+            return;
+        }
+
+        String videoId = nextVideo.getVideoId();
+
+        if (videoId.equals(mPendingVideoId) || videoId.equals(mResultVideoId)) {
+            return; // metadata is delivered after the player's start
+        }
+
+        long lengthMs = toLengthMs(info.getLengthSeconds());
+
+        if (lengthMs <= 0) { // live stream
+            cancel();
+            return;
+        }
+
+        cancel();
+
+        mPendingVideoId = videoId;
+        mPendingPlaylistId = nextVideo.getPlaylistId();
+        mPendingUrl = createVideoInfoUrl(currentUrl, videoId, mPendingPlaylistId);
+        mThresholdMs = Math.max(lengthMs * THRESHOLD_PERCENT / 100, lengthMs - PREFETCH_AHEAD_MS);
+
+        Log.d(TAG, String.format("Next video %s will be prefetched at %s sec", videoId, mThresholdMs / 1000));
+    }
+
+    /**
+     * Playback position of the current video
+     */
+    public synchronized void onProgress(long positionMs) {
+        if (mPendingVideoId == null || positionMs < mThresholdMs) {
+            return;
+        }
+
+        start(mPendingVideoId, mPendingPlaylistId, mPendingUrl);
+    }
+
+    /**
+     * Drop the scheduled prefetch. Already fetched video is kept till it expires.
+     */
+    public synchronized void cancel() {
+        mPendingVideoId = null;
+        mPendingPlaylistId = null;
+        mPendingUrl = null;
+    }
+
+    /**
+     * Doesn't wait for the running prefetch
+     *
+     * @return prefetched video (removed from the cache) or null
+     */
+    public synchronized NextVideo take(String videoId) {
+        if (videoId == null || !videoId.equals(mResultVideoId) || !mResult.isDone()) {
+            return null;
+        }
+
+        Future<NextVideo> result = mResult;
+        mResult = null;
+        mResultVideoId = null;
+
+        NextVideo nextVideo = null;
+
+        try {
+            nextVideo = result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "Prefetch failed: " + e.getMessage());
+        }
+
+        if (nextVideo == null || nextVideo.isExpired()) {
+            return null;
+        }
+
+        Log.d(TAG, "Next video is found in the prefetch cache: " + videoId);
+
+        return nextVideo;
+    }
+
+    private void start(String videoId, String playlistId, String videoInfoUrl) {
+        cancel();
+
+        if (mResult != null) {
+            mResult.cancel(true);
+        }
+
+        mResultVideoId = videoId;
+        mResult = mExecutor.submit(() -> fetch(videoId, playlistId, videoInfoUrl));
+    }
+
+    private NextVideo fetch(String videoId, String playlistId, String videoInfoUrl) {
+        Log.d(TAG, "Prefetching next video: " + videoId);
+
+        String videoInfo = null;
+        Response response = OkHttpManager.instance().doGet(videoInfoUrl, mHeaderManager.getHeaderSnapshot());
+
+        if (response != null) {
+            try {
+                if (response.body() != null) {
+                    videoInfo = Helpers.toString(response.body().byteStream());
+                }
+            } finally {
+                response.close(); // releases host permit and connection
+            }
+        }
+
+        if (videoInfo == null) {
+            return null;
+        }
+
+        NextVideo result = new NextVideo(playlistId, videoInfo, mNextInterceptor.getMetadata(videoId, playlistId));
+
+        // paused WebView won't respond to decipher request, so only in-process decipher is used
+        if (DecipherProgram.getCurrent() != null) {
+            MediaRecorder media = new MediaRecorder();
+
+            // parser marks startup stages, but they belong to the current video
+            StartupTracer.instance().setSuppressed(true);
+
+            try {
+                new SimpleYouTubeInfoParser(mContext, Helpers.toStream(videoInfo)).parse(media);
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Can't parse next video: " + e.getMessage());
+            } finally {
+                StartupTracer.instance().setSuppressed(false);
+            }
+
+            if (media.mDone) {
+                result.mMedia = media;
+
+                if (media.mMpdBuilder != null) {
+                    SegmentCache.instance(mContext).prefetch(media.mMpdBuilder.buildManifest());
+                }
+            }
+        }
+
+        Log.d(TAG, "Next video prefetched: " + videoId);
+
+        return result;
+    }
+
+    private static String createVideoInfoUrl(String currentUrl, String videoId, String playlistId) {
+        MyUrlEncodedQueryString query = MyUrlEncodedQueryString.parse(currentUrl);
+        query.set(PARAM_VIDEO_ID, videoId);
+
+        if (playlistId != null) {
+            query.set(PARAM_PLAYLIST_ID, playlistId);
+        } else {
+            query.remove(PARAM_PLAYLIST_ID);
+        }
+
+        return query.toString();
+    }
+
+    private static long toLengthMs(String lengthSeconds) {
+        try {
+            return (long) (Double.parseDouble(lengthSeconds) * 1000);
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+
+    public static class NextVideo {
+        private final long mTimeMs = System.currentTimeMillis();
+        private final String mPlaylistId;
+        private final String mVideoInfo;
+        private final VideoMetadata mMetadata;
+        private MediaRecorder mMedia;
+
+        private NextVideo(String playlistId, String videoInfo, VideoMetadata metadata) {
+            mPlaylistId = playlistId;
+            mVideoInfo = videoInfo;
+            mMetadata = metadata;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - mTimeMs > EXPIRE_TIME_MS;
+        }
+
+        /**
+         * Metadata contains the next video too, so it's valid only within the same playlist
+         * @return metadata or null
+         */
+        public VideoMetadata getMetadata(String playlistId) {
+            return playlistId == null || TextUtils.equals(playlistId, mPlaylistId) ? mMetadata : null;
+        }
+
+        public InputStream openVideoInfo() {
+            return Helpers.toStream(mVideoInfo);
+        }
+
+        public boolean hasMedia() {
+            return mMedia != null;
+        }
+
+        /**
+         * Deliver parsed media in the same order as the parser does
+         */
+        public void replayMedia(OnMediaFoundCallback callback) {
+            MediaRecorder media = mMedia;
+
+            if (media.mInfo != null) {
+                callback.onGenericInfoFound(media.mInfo);
+            }
+
+            if (media.mTrackingUrl != null) {
+                callback.onTrackingUrlFound(media.mTrackingUrl);
+            }
+
+            if (media.mSpec != null) {
+                callback.onStorySpecFound(media.mSpec);
+            }
+
+            if (media.mHlsUrl != null) {
+                callback.onHLSFound(media.mHlsUrl);
+            }
+
+            if (media.mDashUrl != null) {
+                callback.onDashUrlFound(media.mDashUrl);
+            }
+
+            if (media.mMpdBuilder != null) {
+                callback.onDashMPDFound(media.mMpdBuilder);
+            }
+
+            if (media.mUrlList != null) {
+                callback.onUrlListFound(media.mUrlList);
+            }
+
+            callback.onDone();
+        }
+    }
+
+    private static class MediaRecorder extends OnMediaFoundCallback {
+        private GenericInfo mInfo;
+        private Uri mTrackingUrl;
+        private String mSpec;
+        private Uri mHlsUrl;
+        private Uri mDashUrl;
+        private MPDBuilder mMpdBuilder;
+        private List<String> mUrlList;
+        private boolean mDone;
+
+        @Override
+        public void onGenericInfoFound(GenericInfo info) {
+            mInfo = info;
+        }
+
+        @Override
+        public void onTrackingUrlFound(Uri trackingUrl) {
+            mTrackingUrl = trackingUrl;
+        }
+
+        @Override
+        public void onStorySpecFound(String spec) {
+            mSpec = spec;
+        }
+
+        @Override
+        public void onHLSFound(Uri hlsUrl) {
+            mHlsUrl = hlsUrl;
+        }
+
+        @Override
+        public void onDashUrlFound(Uri dashUrl) {
+            mDashUrl = dashUrl;
+        }
+
+        @Override
+        public void onDashMPDFound(MPDBuilder mpdBuilder) {
+            mMpdBuilder = mpdBuilder;
+        }
+
+        @Override
+        public void onUrlListFound(List<String> uriList) {
+            mUrlList = uriList;
+        }
+
+        @Override
+        public void onDone() {
+            mDone = true;
+        }
+    }
+}
@@ -5,11 +5,14 @@ import android.webkit.WebResourceResponse;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.CommonApplication;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ExoIntent;
+import com.liskovsoft.smartyoutubetv.interceptors.PostDataRegistry;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 
-public class ScreenMirrorInterceptor extends RequestInterceptor {
+public class ScreenMirrorInterceptor extends RequestInterceptor implements PostDataRegistry.Replayer {
     private static final String TAG = ScreenMirrorInterceptor.class.getSimpleName();
+    private static final String LOUNGE_BIND = "/api/lounge/bc/bind";
+    private static final String LOUNGE_SCREEN = "device=LOUNGE_SCREEN";
     private final SmartPreferences mPrefs;
     private final MainExoInterceptor mExoRootInterceptor;
     private boolean mPrevPaused;
@@ -21,6 +24,12 @@ public class ScreenMirrorInterceptor extends RequestInterceptor {
         super(context);
         mExoRootInterceptor = exoRootInterceptor;
         mPrefs = CommonApplication.getPreferences();
+        PostDataRegistry.instance().setReplayer(LOUNGE_BIND, this);
+    }
+
+    @Override
+    public boolean isReplayed(String url) {
+        return mPrefs.isMirrorEnabled() && url.contains(LOUNGE_SCREEN);
     }
 
     @Override
@@ -32,10 +41,10 @@ public class ScreenMirrorInterceptor extends RequestInterceptor {
     public WebResourceResponse intercept(String url) {
         WebResourceResponse res = null;
 
-        String postData = mPrefs.getPostData();
+        String postData = PostDataRegistry.instance().take(url);
 
         if (mPrefs.isMirrorEnabled() && postData != null) {
-            LoungeData loungeData = LoungeData.parse(postData, url);
+            LoungeData loungeData = LoungeData.parse(postData, PostDataRegistry.stripRequestId(url));
 
             if (loungeData.isDisconnected()) {
                 mExoRootInterceptor.getTwoFragmentManager().closeExoPlayer();
@@ -61,6 +70,11 @@ public class ScreenMirrorInterceptor extends RequestInterceptor {
             Log.d(TAG, "Screen mirror isn't enabled. Cancel processing.");
         }
 
+        if (res == null && postData != null && PostDataRegistry.hasRequestId(url)) {
+            // send tagged request unchanged, so the request id doesn't reach the server
+            res = postFormData(PostDataRegistry.stripRequestId(url), postData);
+        }
+
         return res;
     }
 
@@ -0,0 +1,277 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors;
+
+import android.net.Uri;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.mpd.MPDBuilder;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.JsonNextParser.VideoMetadata;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.OnMediaFoundCallback;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.YouTubeMediaParser.GenericInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs video start stages (metadata, formats, decipher, mpd) on the bounded executor.<br/>
+ * Each video gets its own {@link Session}. Starting a new video cancels the previous one,
+ * so stale results never reach the player.<br/>
+ * When the executor is overloaded the session fails instead of running the stage on the caller (WebView) thread.<br/>
+ * Per-stage timings of the last video are available through {@link #getLastTimings()}.
+ */
+public class VideoStartPipeline {
+    private static final String TAG = VideoStartPipeline.class.getSimpleName();
+    public static final String STAGE_METADATA = "metadata";
+    public static final String STAGE_FORMATS = "formats";
+    public static final String STAGE_DECIPHER = "decipher";
+    public static final String STAGE_MPD = "mpd";
+    public static final String STAGE_TOTAL = "total";
+    private static final int THREAD_COUNT = 3;
+    private static final int QUEUE_SIZE = 8;
+    private final ThreadPoolExecutor mExecutor;
+    private Session mCurrent;
+    private Map<String, Long> mLastTimings = Collections.emptyMap();
+
+    public VideoStartPipeline() {
+        mExecutor = new ThreadPoolExecutor(
+                THREAD_COUNT, THREAD_COUNT, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Cancel previous video and begin the new one
+     */
+    public synchronized Session start(String videoId) {
+        cancel();
+        mCurrent = new Session(videoId);
+        return mCurrent;
+    }
+
+    public synchronized void cancel() {
+        if (mCurrent != null) {
+            mCurrent.cancel();
+            mCurrent = null;
+        }
+    }
+
+    /**
+     * Stage durations in ms of the last fully started video
+     */
+    public synchronized Map<String, Long> getLastTimings() {
+        return mLastTimings;
+    }
+
+    private synchronized void onSessionDone(Session session) {
+        mLastTimings = Collections.unmodifiableMap(new LinkedHashMap<>(session.getTimings()));
+        Log.d(TAG, "Video " + session.mVideoId + " started. Timings (ms): " + mLastTimings);
+    }
+
+    public class Session {
+        private final String mVideoId;
+        private final long mStartNanos = System.nanoTime();
+        private final List<Future<?>> mTasks = new ArrayList<>();
+        private final Map<String, Long> mTimings = new LinkedHashMap<>();
+        private volatile boolean mCancelled;
+        private volatile long mParseStartNanos;
+
+        private Session(String videoId) {
+            mVideoId = videoId;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Run stage in background and store its duration
+         *
+         * @return false if the stage is rejected by the executor, session is cancelled then
+         */
+        public boolean run(String stage, Runnable task) {
+            Runnable timedTask = () -> {
+                if (mCancelled) {
+                    return;
+                }
+
+                long startNanos = System.nanoTime();
+                task.run();
+                onStageDone(stage, startNanos);
+            };
+
+            synchronized (this) {
+                if (mCancelled) {
+                    return true;
+                }
+
+                try {
+                    mTasks.add(mExecutor.submit(timedTask));
+                } catch (RejectedExecutionException e) {
+                    Log.e(TAG, "Video start stage rejected: " + stage + ". Video: " + mVideoId);
+                    cancel();
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Parser is about to start. Decipher stage lasts till the media is found.
+         */
+        public void onParseStart() {
+            mParseStartNanos = System.nanoTime();
+        }
+
+        /**
+         * Callbacks of the cancelled session are dropped
+         */
+        public OnMediaFoundCallback wrap(OnMediaFoundCallback callback) {
+            return new SessionCallback(callback);
+        }
+
+        private synchronized void cancel() {
+            if (mCancelled) {
+                return;
+            }
+
+            Log.d(TAG, "Cancelling video start: " + mVideoId);
+
+            mCancelled = true;
+
+            for (Future<?> task : mTasks) {
+                task.cancel(true);
+            }
+
+            mTasks.clear();
+        }
+
+        private synchronized void onStageDone(String stage, long startNanos) {
+            mTimings.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        private synchronized Map<String, Long> getTimings() {
+            return mTimings;
+        }
+
+        private class SessionCallback extends OnMediaFoundCallback {
+            private final OnMediaFoundCallback mCallback;
+
+            SessionCallback(OnMediaFoundCallback callback) {
+                mCallback = callback;
+            }
+
+            @Override
+            public void onStart() {
+                if (!mCancelled) {
+                    mCallback.onStart();
+                }
+            }
+
+            @Override
+            public void onFalseCall() {
+                if (!mCancelled) {
+                    mCallback.onFalseCall();
+                }
+            }
+
+            @Override
+            public void onDashMPDFound(MPDBuilder mpdBuilder) {
+                if (!mCancelled) {
+                    mCallback.onDashMPDFound(mpdBuilder);
+                }
+            }
+
+            @Override
+            public void onHLSFound(Uri hlsUrl) {
+                if (!mCancelled) {
+                    mCallback.onHLSFound(hlsUrl);
+                }
+            }
+
+            @Override
+            public void onUrlListFound(List<String> uriList) {
+                if (!mCancelled) {
+                    mCallback.onUrlListFound(uriList);
+                }
+            }
+
+            @Override
+            public void onDashUrlFound(Uri dashUrl) {
+                if (!mCancelled) {
+                    mCallback.onDashUrlFound(dashUrl);
+                }
+            }
+
+            @Override
+            public void onTrackingUrlFound(Uri trackingUrl) {
+                if (!mCancelled) {
+                    mCallback.onTrackingUrlFound(trackingUrl);
+                }
+            }
+
+            @Override
+            public void onRealTrackingUrlFound(Uri trackingUrl) {
+                if (!mCancelled) {
+                    mCallback.onRealTrackingUrlFound(trackingUrl);
+                }
+            }
+
+            @Override
+            public void onStorySpecFound(String spec) {
+                if (!mCancelled) {
+                    mCallback.onStorySpecFound(spec);
+                }
+            }
+
+            @Override
+            public void onGenericInfoFound(GenericInfo info) {
+                if (!mCancelled) {
+                    mCallback.onGenericInfoFound(info);
+                }
+            }
+
+            @Override
+            public void onMetadata(VideoMetadata metadata) {
+                if (!mCancelled) {
+                    mCallback.onMetadata(metadata);
+                }
+            }
+
+            @Override
+            public void onDone() {
+                if (mCancelled) {
+                    Log.d(TAG, "Video start was cancelled. Skip result: " + mVideoId);
+                    return;
+                }
+
+                if (mParseStartNanos != 0) {
+                    onStageDone(STAGE_DECIPHER, mParseStartNanos);
+                }
+
+                // player wrapper builds mpd and opens the player here
+                long mpdStartNanos = System.nanoTime();
+
+                mCallback.onDone();
+
+                StartupTracer.instance().mark(mVideoId, StartupTracer.STAGE_MPD);
+                onStageDone(STAGE_MPD, mpdStartNanos);
+                onStageDone(STAGE_TOTAL, mStartNanos);
+                onSessionDone(Session.this);
+            }
+        }
+    }
+}
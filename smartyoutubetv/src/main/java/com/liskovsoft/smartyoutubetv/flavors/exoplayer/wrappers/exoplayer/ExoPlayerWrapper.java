@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
 import com.liskovsoft.browser.Browser;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
@@ -14,6 +15,7 @@ import com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors.BackgroundAc
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors.ExoInterceptor;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors.HistoryInterceptor;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.ExoPlayerFragment;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ManifestRegistry.ContentBuffer;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.SampleHelpers;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.support.SampleHelpers.Sample;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.wrappers.externalplayer.ExternalPlayerWrapper;
@@ -173,6 +175,7 @@ public class ExoPlayerWrapper extends OnMediaFoundCallback implements PlayerList
 
         if (metadata != null && mExoIntent != null) { // called async
             startPlayer(metadata.toIntent());
+            mInterceptor.getPrefetcher().schedule(mInterceptor.getCurrentUrl(), metadata, mInfo);
         }
     }
 
@@ -197,7 +200,10 @@ public class ExoPlayerWrapper extends OnMediaFoundCallback implements PlayerList
         if (mHlsUrl != null) {
             sample = SampleHelpers.buildFromHlsUri(mHlsUrl);
         } else if (mMpdBuilder != null) {
-            sample = SampleHelpers.buildFromMPDPlaylist(mMpdBuilder.build());
+            DashManifest manifest = mMpdBuilder.buildManifest();
+            // xml is used only when the content couldn't be represented directly
+            sample = manifest != null ?
+                    SampleHelpers.buildFromDashManifest(manifest) : SampleHelpers.buildFromMPDPlaylist(buildCompactMpd());
         } else if (mDashUrl != null) {
             sample = SampleHelpers.buildFromMpdUri(mDashUrl);
         } else if (mUrlList != null) {
@@ -217,6 +223,16 @@ public class ExoPlayerWrapper extends OnMediaFoundCallback implements PlayerList
         prepareAndOpenExoPlayer(mExoIntent);
     }
 
+    /**
+     * Manifest is read fully by the player, so there's no point to produce it in background<br/>
+     * Buffer is registered as is, so the manifest is held only once
+     */
+    private ContentBuffer buildCompactMpd() {
+        ContentBuffer out = new ContentBuffer();
+
+        return mMpdBuilder.build(out) ? out : null;
+    }
+
     private void cleanup() {
         mDashUrl = null;
         mHlsUrl = null;
@@ -257,6 +273,10 @@ public class ExoPlayerWrapper extends OnMediaFoundCallback implements PlayerList
                 mHistory.onStart(); // notify that we about to open new video
             }
 
+            if (mMetadata != null) {
+                mInterceptor.getPrefetcher().schedule(mInterceptor.getCurrentUrl(), mMetadata, mInfo);
+            }
+
             //Intent intent = new Intent();
             //intent.putExtra(ExoPlayerFragment.VIDEO_STARTED, true);
             //mActionSender.bindActions(intent);
@@ -280,10 +300,13 @@ public class ExoPlayerWrapper extends OnMediaFoundCallback implements PlayerList
             cleanup();
             mPlayerClosed = true;
             mManager.onContinue();
+            mInterceptor.getPrefetcher().cancel(); // position of the next video shouldn't trigger it
         } else if (intent.getBooleanExtra(ExoPlayerFragment.BUTTON_BACK, false)) {
             cleanup();
             mPlayerClosed = true;
             mManager.onCancel();
+            mInterceptor.getPrefetcher().cancel();
+            mInterceptor.cancelVideoStart();
         }
 
         if (mHistory != null) {
@@ -314,6 +337,11 @@ public class ExoPlayerWrapper extends OnMediaFoundCallback implements PlayerList
         mInterceptor.openExternally(mExternalPlayerWrapper);
     }
 
+    @Override
+    public void onPlaybackProgress(long positionMs, long durationMs) {
+        mInterceptor.getPrefetcher().onProgress(positionMs);
+    }
+
     private void sendClose() {
         Intent intent = new Intent();
         intent.putExtra(ExoPlayerFragment.BUTTON_BACK, true);
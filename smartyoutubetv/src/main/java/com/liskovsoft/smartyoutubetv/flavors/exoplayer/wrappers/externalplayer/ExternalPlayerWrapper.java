@@ -25,6 +25,9 @@ import com.liskovsoft.smartyoutubetv.misc.UserAgentManager;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public class ExternalPlayerWrapper extends OnMediaFoundCallback implements ActivityResult {
@@ -164,10 +167,29 @@ public class ExternalPlayerWrapper extends OnMediaFoundCallback implements Activ
         openPlayer(intent);
     }
 
+    private void writeMpd() {
+        OutputStream out = null;
+
+        try {
+            out = new FileOutputStream(mMpdFile);
+            mMpdBuilder.build(out);
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Can't write mpd file: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
     private void initIntent(Intent intent) {
         if (mMpdBuilder != null) {
             applyLimits();
-            FileHelpers.streamToFile(mMpdBuilder.build(), mMpdFile);
+            writeMpd();
             // NOTE: Don't use fromFile or you will get FileUriExposedException
             //intent.setDataAndType(FileHelpers.getFileUri(mContext, mMpdFile), MIME_MP4);
             // VLC fix
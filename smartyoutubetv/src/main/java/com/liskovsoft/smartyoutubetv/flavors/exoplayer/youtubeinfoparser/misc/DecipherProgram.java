@@ -0,0 +1,185 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decipher routine (see {@link DecipherUtils#extractDecipherCode}) compiled into the list of the simple ops (reverse/splice/swap).<br/>
+ * Runs in-process, so signatures don't make a round trip through the WebView.<br/>
+ * Compiled programs are cached by the player version. Unknown routine form (any statement that isn't a helper call)?
+ * {@link #compile} returns null.
+ */
+public class DecipherProgram {
+    private static final String TAG = DecipherProgram.class.getSimpleName();
+    private static final int OP_REVERSE = 0;
+    private static final int OP_SPLICE = 1;
+    private static final int OP_SWAP = 2;
+    private static final int MAX_CACHED_PROGRAMS = 3;
+    // e.g. F2:function(a,b){a.splice(0,b)}
+    private static final Pattern HELPER_PATTERN = Pattern.compile("([$\\w]+):function\\(a(?:,b)?\\)\\{([^}]*)\\}");
+    // e.g. EQ.F2(a,2) or EQ["F2"](a,2)
+    private static final Pattern CALL_PATTERN = Pattern.compile("[$\\w]+(?:\\.([$\\w]+)|\\[\"([$\\w]+)\"\\])\\(a,(\\d+)\\)");
+    private static final Pattern BODY_PATTERN = Pattern.compile("function decipherSignature\\(a\\)\\{(.*)\\}");
+    private static final String SPLIT_STATEMENT = "a=a.split(\"\")";
+    private static final String JOIN_STATEMENT = "return a.join(\"\")";
+    private static final Map<String, DecipherProgram> sCache = new LinkedHashMap<String, DecipherProgram>(MAX_CACHED_PROGRAMS + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DecipherProgram> eldest) {
+            return size() > MAX_CACHED_PROGRAMS;
+        }
+    };
+    private static DecipherProgram sCurrent;
+    private final int[] mOps;
+    private final int[] mArgs;
+
+    private DecipherProgram(int[] ops, int[] args) {
+        mOps = ops;
+        mArgs = args;
+    }
+
+    /**
+     * @param playerVersion cache key (player script hash)
+     * @param jsCode result of {@link DecipherUtils#extractDecipherCode}
+     * @return program or null if routine can't be compiled
+     */
+    public static synchronized DecipherProgram compile(String playerVersion, String jsCode) {
+        DecipherProgram program = sCache.get(playerVersion);
+
+        if (program == null && jsCode != null) {
+            program = compile(jsCode);
+
+            if (program != null) {
+                sCache.put(playerVersion, program);
+                Log.d(TAG, String.format("Decipher routine of the player %s compiled. Ops: %s", playerVersion, program.mOps.length));
+            } else {
+                Log.e(TAG, "Can't compile decipher routine of the player " + playerVersion);
+            }
+        }
+
+        sCurrent = program;
+
+        return program;
+    }
+
+    /**
+     * Program of the player that is loaded in the WebView
+     * @return program or null if it isn't compiled yet
+     */
+    public static synchronized DecipherProgram getCurrent() {
+        return sCurrent;
+    }
+
+    private static DecipherProgram compile(String jsCode) {
+        Map<String, Integer> helpers = new HashMap<>();
+        Matcher helperMatcher = HELPER_PATTERN.matcher(jsCode);
+
+        while (helperMatcher.find()) {
+            String body = helperMatcher.group(2);
+
+            if (body.contains("var c")) {
+                helpers.put(helperMatcher.group(1), OP_SWAP);
+            } else if (body.contains("splice")) {
+                helpers.put(helperMatcher.group(1), OP_SPLICE);
+            } else if (body.contains("reverse")) {
+                helpers.put(helperMatcher.group(1), OP_REVERSE);
+            } else {
+                return null; // unknown op
+            }
+        }
+
+        Matcher bodyMatcher = BODY_PATTERN.matcher(jsCode);
+
+        if (helpers.isEmpty() || !bodyMatcher.find()) {
+            return null;
+        }
+
+        String[] statements = bodyMatcher.group(1).split(";");
+        int last = statements.length - 1;
+
+        if (last < 1 || !SPLIT_STATEMENT.equals(statements[0]) || !JOIN_STATEMENT.equals(statements[last])) {
+            return null;
+        }
+
+        List<Integer> ops = new ArrayList<>();
+        List<Integer> args = new ArrayList<>();
+
+        for (int i = 1; i < last; i++) {
+            Matcher callMatcher = CALL_PATTERN.matcher(statements[i]);
+
+            if (!callMatcher.matches()) {
+                return null; // skipping unknown statement would produce wrong signatures
+            }
+
+            String name = callMatcher.group(1) != null ? callMatcher.group(1) : callMatcher.group(2);
+            Integer op = helpers.get(name);
+
+            if (op == null) {
+                return null; // call to something else
+            }
+
+            ops.add(op);
+            args.add(Integer.parseInt(callMatcher.group(3)));
+        }
+
+        if (ops.isEmpty()) {
+            return null;
+        }
+
+        int[] opsArray = new int[ops.size()];
+        int[] argsArray = new int[args.size()];
+
+        for (int i = 0; i < opsArray.length; i++) {
+            opsArray[i] = ops.get(i);
+            argsArray[i] = args.get(i);
+        }
+
+        return new DecipherProgram(opsArray, argsArray);
+    }
+
+    /**
+     * @param signatures null items are kept as is
+     */
+    public List<String> decipher(List<String> signatures) {
+        List<String> result = new ArrayList<>(signatures.size());
+
+        for (String signature : signatures) {
+            result.add(signature == null ? null : decipher(signature));
+        }
+
+        return result;
+    }
+
+    public String decipher(String signature) {
+        StringBuilder sig = new StringBuilder(signature);
+
+        for (int i = 0; i < mOps.length; i++) {
+            int arg = mArgs[i];
+
+            switch (mOps[i]) {
+                case OP_REVERSE:
+                    sig.reverse();
+                    break;
+                case OP_SPLICE:
+                    sig.delete(0, Math.min(arg, sig.length()));
+                    break;
+                case OP_SWAP:
+                    if (sig.length() > 0) {
+                        int pos = arg % sig.length();
+                        char first = sig.charAt(0);
+                        sig.setCharAt(0, sig.charAt(pos));
+                        sig.setCharAt(pos, first);
+                    }
+                    break;
+            }
+        }
+
+        return sig.toString();
+    }
+}
@@ -1,15 +1,29 @@
 package com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.mpd;
 
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.JsonInfoParser.Subtitle;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.JsonInfoParser.MediaItem;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface MPDBuilder {
     String VIDEO_MP4 = "video/mp4";
     String AUDIO_MP4 = "audio/mp4";
     InputStream build();
+    /**
+     * Write compact manifest straight to the sink
+     *
+     * @return false if manifest can't be built
+     */
+    boolean build(OutputStream out);
+    /**
+     * Manifest that could be passed directly to the player
+     *
+     * @return null if content can't be represented without xml
+     */
+    DashManifest buildManifest();
     boolean isEmpty();
     void append(MediaItem mediaItem);
     void append(List<Subtitle> subs);
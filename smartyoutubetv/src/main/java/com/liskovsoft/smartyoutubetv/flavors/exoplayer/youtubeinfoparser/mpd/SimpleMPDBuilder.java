@@ -2,7 +2,17 @@ package com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.mpd;
 
 import android.util.Xml;
 
-import com.liskovsoft.sharedutils.helpers.FileHelpers;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.Descriptor;
+import com.google.android.exoplayer2.source.dash.manifest.Period;
+import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SingleSegmentBase;
+import com.google.android.exoplayer2.util.MimeTypes;
+
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.ITag;
@@ -16,10 +26,14 @@ import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers
 
 import org.xmlpull.v1.XmlSerializer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -40,7 +54,6 @@ public class SimpleMPDBuilder implements MPDBuilder {
     private static final Pattern CODECS_PATTERN = Pattern.compile(".*codecs=\\\"(.*)\\\"");
     private final GenericInfo mInfo;
     private XmlSerializer mXmlSerializer;
-    private StringWriter mWriter;
     private int mId;
     private final Set<MediaItem> mMP4Audios;
     private final Set<MediaItem> mMP4Videos;
@@ -64,23 +77,37 @@ public class SimpleMPDBuilder implements MPDBuilder {
         mWEBMVideos = new TreeSet<>(comp);
         mSubs = new ArrayList<>();
         mSegmentParser = new OtfSegmentParser(true);
-
-        initXmlSerializer();
     }
 
-    private void initXmlSerializer() {
+    /**
+     * @param indent pretty output, useful for debugging but makes manifest bigger
+     */
+    private void initXmlSerializer(OutputStream out, boolean indent) {
         mXmlSerializer = Xml.newSerializer();
-        mWriter = new StringWriter();
 
-        setOutput(mXmlSerializer, mWriter);
+        setOutput(mXmlSerializer, out);
 
         startDocument(mXmlSerializer);
-        mXmlSerializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
+
+        if (indent) {
+            mXmlSerializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
+        }
+    }
+
+    private void writeDocument(OutputStream out, boolean indent) {
+        mId = 0;
+
+        initXmlSerializer(out, indent);
+
+        writePrologue();
+
+        writeMediaTags();
+
+        writeEpilogue();
     }
 
     private void writePrologue() {
-        String duration = mInfo.getLengthSeconds();
-        String durationParam = String.format("PT%sS", duration);
+        String durationParam = "PT" + mInfo.getLengthSeconds() + "S";
 
         startTag("", "MPD");
         attribute("", "xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
@@ -248,9 +275,9 @@ public class SimpleMPDBuilder implements MPDBuilder {
         }
     }
 
-    private void setOutput(XmlSerializer xmlSerializer, StringWriter writer) {
+    private void setOutput(XmlSerializer xmlSerializer, OutputStream out) {
         try {
-            xmlSerializer.setOutput(writer);
+            xmlSerializer.setOutput(out, "UTF-8");
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
@@ -587,21 +614,257 @@ public class SimpleMPDBuilder implements MPDBuilder {
         return true;
     }
 
+    /**
+     * Indented manifest. Whole content is kept in memory.
+     */
     @Override
     public InputStream build() {
         if (ensureRequiredFieldsAreSet()) {
-            writePrologue();
-
-            writeMediaTags();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-            writeEpilogue();
+            writeDocument(out, true);
 
-            return FileHelpers.toStream(mWriter.toString());
+            return new ByteArrayInputStream(out.toByteArray());
         }
 
         return null;
     }
 
+    @Override
+    public boolean build(OutputStream out) {
+        if (ensureRequiredFieldsAreSet()) {
+            writeDocument(out, false);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Same content as {@link #build()} but without xml serialization and parsing.<br/>
+     * Only static videos with SegmentBase are supported.
+     */
+    @Override
+    public DashManifest buildManifest() {
+        if (!ensureRequiredFieldsAreSet() || isLive()) {
+            return null;
+        }
+
+        long durationMs = toDurationMs(mInfo.getLengthSeconds());
+
+        if (durationMs <= 0) {
+            Log.e(TAG, "Can't build manifest. Bad video length: " + mInfo.getLengthSeconds());
+            return null;
+        }
+
+        mId = 0;
+
+        List<AdaptationSet> sets = new ArrayList<>();
+
+        // same order as in the xml
+        for (Set<MediaItem> items : Arrays.asList(mWEBMVideos, mWEBMAudios, mMP4Videos, mMP4Audios)) {
+            if (!appendAdaptationSet(sets, items)) {
+                return null;
+            }
+        }
+
+        for (Subtitle sub : mSubs) {
+            sets.add(createAdaptationSet(sub));
+        }
+
+        Period period = new Period(null, 0, sets);
+
+        return new DashManifest(
+                C.TIME_UNSET,
+                durationMs,
+                1500,
+                false,
+                C.TIME_UNSET,
+                C.TIME_UNSET,
+                C.TIME_UNSET,
+                C.TIME_UNSET,
+                null,
+                null,
+                null,
+                Collections.singletonList(period));
+    }
+
+    /**
+     * @return duration or 0 if length is missing or broken
+     */
+    private static long toDurationMs(String lengthSeconds) {
+        if (lengthSeconds == null || lengthSeconds.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return (long) (Double.parseDouble(lengthSeconds) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return false if items couldn't be represented without xml
+     */
+    private boolean appendAdaptationSet(List<AdaptationSet> sets, Set<MediaItem> items) {
+        if (items.size() == 0) {
+            return true;
+        }
+
+        List<MediaItem> filtered = filterOtfItems(items);
+
+        if (filtered.size() == 0) {
+            return true;
+        }
+
+        int id = mId++;
+        boolean isVideo = isVideo(filtered.get(0));
+        List<Representation> representations = new ArrayList<>();
+
+        for (MediaItem item : filtered) {
+            if (mLimitVideoCodec != null && isVideo(item) && !item.getType().contains(mLimitVideoCodec)) {
+                continue;
+            }
+
+            if (mLimitAudioCodec != null && isAudio(item) && !item.getType().contains(mLimitAudioCodec)) {
+                continue;
+            }
+
+            if (item.isOTF() || item.getGlobalSegmentList() != null || item.getSegmentUrlList() != null) {
+                return false;
+            }
+
+            representations.add(createRepresentation(item, extractMimeType(filtered.get(0))));
+        }
+
+        if (representations.isEmpty()) {
+            return true;
+        }
+
+        sets.add(new AdaptationSet(
+                id,
+                isVideo ? C.TRACK_TYPE_VIDEO : C.TRACK_TYPE_AUDIO,
+                representations,
+                Collections.<Descriptor>emptyList(),
+                Collections.<Descriptor>emptyList()));
+
+        return true;
+    }
+
+    private Representation createRepresentation(MediaItem item, String containerMimeType) {
+        String codecs = extractCodecs(item);
+        String sampleMimeType = MimeTypes.getMediaMimeType(codecs);
+        Format format;
+
+        if (isVideo(item)) {
+            format = Format.createVideoContainerFormat(
+                    item.getITag(),
+                    null,
+                    containerMimeType,
+                    sampleMimeType,
+                    codecs,
+                    null,
+                    toInt(item.getBitrate()),
+                    toInt(MediaItemUtils.getWidth(item)),
+                    toInt(MediaItemUtils.getHeight(item)),
+                    toFloat(item.getFps()),
+                    null,
+                    0,
+                    C.ROLE_FLAG_MAIN);
+        } else {
+            format = Format.createAudioContainerFormat(
+                    item.getITag(),
+                    null,
+                    containerMimeType,
+                    sampleMimeType,
+                    codecs,
+                    null,
+                    toInt(item.getBitrate()),
+                    Format.NO_VALUE,
+                    toInt(ITag.getAudioRateByTag(item.getITag())),
+                    null,
+                    0,
+                    C.ROLE_FLAG_MAIN,
+                    null);
+        }
+
+        SingleSegmentBase segmentBase;
+
+        if (item.getIndex() != null && !item.getIndex().equals(NULL_INDEX_RANGE)) { // json format fix: index is null
+            long[] init = toRange(item.getInit());
+            long[] index = toRange(item.getIndex());
+            segmentBase = new SingleSegmentBase(new RangedUri(null, init[0], init[1]), 1, 0, index[0], index[1]);
+        } else {
+            segmentBase = new SingleSegmentBase();
+        }
+
+        return Representation.newInstance(Representation.REVISION_ID_DEFAULT, format, item.getUrl(), segmentBase);
+    }
+
+    private AdaptationSet createAdaptationSet(Subtitle sub) {
+        int id = mId++;
+        String mimeType = sub.getMimeType();
+        String sampleMimeType = MimeTypes.isText(mimeType) ? mimeType : MimeTypes.getMediaMimeType(sub.getCodecs());
+
+        Format format = Format.createTextContainerFormat(
+                String.valueOf(mId),
+                null,
+                mimeType,
+                sampleMimeType,
+                sub.getCodecs(),
+                268,
+                0,
+                C.ROLE_FLAG_SUBTITLE,
+                sub.getName() == null ? sub.getLanguageCode() : sub.getName());
+
+        Representation representation =
+                Representation.newInstance(Representation.REVISION_ID_DEFAULT, format, sub.getBaseUrl(), new SingleSegmentBase());
+
+        return new AdaptationSet(
+                id,
+                C.TRACK_TYPE_TEXT,
+                Collections.singletonList(representation),
+                Collections.<Descriptor>emptyList(),
+                Collections.<Descriptor>emptyList());
+    }
+
+    /**
+     * @param range example: 0-759
+     * @return start and length
+     */
+    private static long[] toRange(String range) {
+        String[] parts = range.split("-");
+        long start = Long.parseLong(parts[0]);
+        long end = Long.parseLong(parts[1]);
+
+        return new long[]{start, end - start + 1};
+    }
+
+    private static int toInt(String value) {
+        if (value == null) {
+            return Format.NO_VALUE;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return Format.NO_VALUE;
+        }
+    }
+
+    private static float toFloat(String value) {
+        if (value == null) {
+            return Format.NO_VALUE;
+        }
+
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return Format.NO_VALUE;
+        }
+    }
+
     @Override
     public boolean isEmpty() {
         return (mMP4Videos.size() == 0 && mWEBMVideos.size() == 0
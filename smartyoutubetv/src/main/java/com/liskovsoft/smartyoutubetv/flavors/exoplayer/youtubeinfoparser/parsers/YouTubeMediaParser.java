@@ -6,10 +6,13 @@ import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.events.DecipherOnlySignaturesDoneEvent;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.events.DecipherOnlySignaturesEvent;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.DecipherProgram;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.SimpleYouTubeGenericInfo;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.SimpleYouTubeMediaItem;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.JsonInfoParser.MediaItem;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.tmp.CipherUtils;
+import com.liskovsoft.smartyoutubetv.misc.OkHttpManager;
+import com.liskovsoft.smartyoutubetv.misc.StartupTracer;
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyPathQueryString;
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyQueryString;
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyQueryStringFactory;
@@ -208,8 +211,20 @@ public class YouTubeMediaParser {
             throw new IllegalStateException("No media items found!");
         }
 
+        StartupTracer.instance().mark(StartupTracer.STAGE_DECIPHER_REQUEST);
+
+        List<String> signatures = extractSignatures();
+        DecipherProgram program = DecipherProgram.getCurrent();
+
+        if (program != null) { // in-process, no WebView round trip
+            StartupTracer.instance().mark(StartupTracer.STAGE_DECIPHER_DONE);
+            applySignatures(program.decipher(signatures));
+            return;
+        }
+
+        // fallback: decipher routine is executed by the WebView
         Browser.getBus().register(this);
-        Browser.getBus().post(new DecipherOnlySignaturesEvent(extractSignatures(), mId));
+        Browser.getBus().post(new DecipherOnlySignaturesEvent(signatures, mId));
     }
 
     private List<String> extractSignatures() {
@@ -245,8 +260,12 @@ public class YouTubeMediaParser {
         }
 
         Browser.getBus().unregister(this);
+        StartupTracer.instance().mark(StartupTracer.STAGE_DECIPHER_DONE);
+
+        applySignatures(doneEvent.getSignatures());
+    }
 
-        List<String> signatures = doneEvent.getSignatures();
+    private void applySignatures(List<String> signatures) {
         String lastSignature = signatures.get(signatures.size() - 1);
 
         doCallbackOnDashMPDUrl(lastSignature);
@@ -349,9 +368,21 @@ public class YouTubeMediaParser {
         extractDashMPDUrl();
         extractHlsUrl();
         extractTrackingUrls();
+        prewarmMediaHost();
         decipherSignatures();
     }
 
+    /**
+     * Open connection to the video host while signatures are being deciphered
+     */
+    private void prewarmMediaHost() {
+        if (mMediaItems.isEmpty()) {
+            return;
+        }
+
+        OkHttpManager.instance().prewarm(mMediaItems.get(0).getUrl());
+    }
+
     public interface ParserListener {
         void onHlsUrl(Uri url);
         void onDashUrl(Uri url);
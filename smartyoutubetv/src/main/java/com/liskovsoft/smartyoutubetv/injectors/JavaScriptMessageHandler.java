@@ -7,6 +7,8 @@ import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.prefs.GlobalPreferences;
 import com.liskovsoft.smartyoutubetv.CommonApplication;
 import com.liskovsoft.smartyoutubetv.events.MicClickedEvent;
+import com.liskovsoft.smartyoutubetv.interceptors.PostDataRegistry;
+import com.liskovsoft.smartyoutubetv.interceptors.ads.BrowsePipeline;
 import com.liskovsoft.smartyoutubetv.misc.LangUpdater;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 import com.liskovsoft.smartyoutubetv.fragments.FragmentManager;
@@ -26,6 +28,8 @@ public class JavaScriptMessageHandler {
     private final static String MESSAGE_SEARCH_FIELD_FOCUSED = "message_search_field_focused";
     private final static String MESSAGE_AUTH_BODY = "message_auth_body";
     private final static String MESSAGE_POST_DATA = "message_post_data";
+    private final static String MESSAGE_BROWSE_POST_DATA = "message_browse_post_data";
+    private final static String MESSAGE_REQUEST_POST_DATA = "message_request_post_data";
     private final static String MESSAGE_HIGH_CONTRAST_ENABLED = "message_high_contrast_enabled";
     private final static String MESSAGE_VIDEO_OPEN_TIME = "message_video_open_time";
     private final static String MESSAGE_VISITOR_ID_HEADER = "message_visitor_id_header";
@@ -90,6 +94,12 @@ public class JavaScriptMessageHandler {
             case MESSAGE_POST_DATA:
                 mPrefs.setPostData(content);
                 break;
+            case MESSAGE_REQUEST_POST_DATA:
+                PostDataRegistry.instance().put(content);
+                break;
+            case MESSAGE_BROWSE_POST_DATA:
+                BrowsePipeline.instance().prefetch(content);
+                break;
             case MESSAGE_HIGH_CONTRAST_ENABLED:
                 mPrefs.setHighContrastEnabled(Boolean.parseBoolean(content));
                 break;
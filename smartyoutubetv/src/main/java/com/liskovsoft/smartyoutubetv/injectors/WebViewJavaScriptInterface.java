@@ -22,6 +22,7 @@ import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.events.
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.injectors.GenericEventResourceInjector.GenericBooleanResultEvent;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.injectors.GenericEventResourceInjector.GenericStringResultEvent;
 import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.injectors.GenericEventResourceInjector.GenericStringResultEventWithId;
+import com.liskovsoft.smartyoutubetv.interceptors.PostDataRegistry;
 import com.liskovsoft.smartyoutubetv.misc.CodecSelectorAddon;
 import com.liskovsoft.smartyoutubetv.misc.oldyoutubeinfoparser.events.SwitchResolutionEvent;
 
@@ -236,4 +237,10 @@ public class WebViewJavaScriptInterface {
     public boolean isBrowserInBackground() {
         return CommonApplication.getPreferences().isBrowserInBackground();
     }
+
+    @JavascriptInterface
+    @org.xwalk.core.JavascriptInterface
+    public boolean isRequestTagged(String url) {
+        return PostDataRegistry.instance().isTagged(url);
+    }
 }
\ No newline at end of file
@@ -4,7 +4,6 @@ import android.content.Context;
 import android.webkit.WebResourceResponse;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.okhttp.OkHttpHelpers;
-import com.liskovsoft.smartyoutubetv.CommonApplication;
 import okhttp3.Response;
 
 import java.io.InputStream;
@@ -26,7 +25,7 @@ public class AllUrlsInterceptor extends RequestInterceptor {
 
     @Override
     public WebResourceResponse intercept(String url) {
-        String postData = CommonApplication.getPreferences().getPostData();
+        String postData = PostDataRegistry.instance().take(url);
 
         if (postData == null) {
             Log.e(TAG, "Post body is empty! Skipping url: " + url);
@@ -0,0 +1,49 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import android.webkit.WebResourceResponse;
+
+/**
+ * Routing result of one request (see {@link RequestInterceptor#route(String)}).<br/>
+ * Decision is created per request and isn't stored by the interceptors,
+ * so WebView io threads could route urls concurrently.
+ */
+public final class InterceptDecision {
+    /**
+     * Url isn't handled
+     */
+    public static final InterceptDecision SKIP = new InterceptDecision(null, false);
+    /**
+     * Url is handled with empty response
+     */
+    public static final InterceptDecision BLOCK = new InterceptDecision(null, true);
+    private final RequestInterceptor mHandler;
+    private final boolean mBlock;
+
+    private InterceptDecision(RequestInterceptor handler, boolean block) {
+        mHandler = handler;
+        mBlock = block;
+    }
+
+    public static InterceptDecision handleBy(RequestInterceptor handler) {
+        return handler == null ? BLOCK : new InterceptDecision(handler, false);
+    }
+
+    public boolean isMatched() {
+        return mHandler != null || mBlock;
+    }
+
+    public RequestInterceptor getHandler() {
+        return mHandler;
+    }
+
+    /**
+     * Run the chosen handler
+     */
+    public WebResourceResponse execute(String url) {
+        if (mHandler != null) {
+            return mHandler.intercept(url);
+        }
+
+        return mBlock ? RequestInterceptor.EMPTY_RESPONSE : null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per interceptor counters used for diagnosis. Safe to update from multiple WebView threads.
+ */
+public class InterceptorStats {
+    private final String mName;
+    private final AtomicLong mTests = new AtomicLong();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mResponses = new AtomicLong();
+    private final AtomicLong mTimeNanos = new AtomicLong();
+
+    public InterceptorStats(String name) {
+        mName = name;
+    }
+
+    public void onTest(boolean hit, long timeNanos) {
+        mTests.incrementAndGet();
+        mTimeNanos.addAndGet(timeNanos);
+
+        if (hit) {
+            mHits.incrementAndGet();
+        }
+    }
+
+    public void onIntercept(boolean responded, long timeNanos) {
+        mTimeNanos.addAndGet(timeNanos);
+
+        if (responded) {
+            mResponses.incrementAndGet();
+        }
+    }
+
+    public void reset() {
+        mTests.set(0);
+        mHits.set(0);
+        mResponses.set(0);
+        mTimeNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        long tests = mTests.get();
+        long timeNanos = mTimeNanos.get();
+        return String.format(Locale.US, "%s: tests=%d hits=%d responses=%d total=%.2fms avg=%.1fus",
+                mName, tests, mHits.get(), mResponses.get(), timeNanos / 1_000_000f, tests == 0 ? 0f : timeNanos / 1_000f / tests);
+    }
+}
@@ -17,6 +17,15 @@ public class OpenExternalPlayerInterceptor extends RequestInterceptor {
         }
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        if (mInterceptor == null) {
+            return new UrlRules(); // nothing to match
+        }
+
+        return mInterceptor.getUrlRules();
+    }
+
     @Override
     public boolean test(String url) {
         if (mInterceptor == null) {
@@ -26,6 +35,15 @@ public class OpenExternalPlayerInterceptor extends RequestInterceptor {
         return mInterceptor.test(url);
     }
 
+    @Override
+    public InterceptDecision route(String url) {
+        if (mInterceptor == null) {
+            return InterceptDecision.SKIP;
+        }
+
+        return mInterceptor.route(url);
+    }
+
     @Override
     public WebResourceResponse intercept(String url) {
         return mInterceptor.intercept(url);
@@ -28,6 +28,12 @@ public class PlaybackStatsInterceptor extends RequestInterceptor {
         mPrefs = SmartPreferences.instance(context);
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        // same markers as in test()
+        return new UrlRules().addSubstring(PRESTART_VIDEO_URL, START_VIDEO_URL, PLAYBACK_URL);
+    }
+
     @Override
     public boolean test(String url) {
         if (mPrefs.isAppJustInstalled() || (BuildConfig.DEBUG && mRunCount++ <= 1)) {
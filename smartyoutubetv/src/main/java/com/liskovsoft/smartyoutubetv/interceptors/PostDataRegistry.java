@@ -0,0 +1,181 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import com.liskovsoft.smartyoutubetv.CommonApplication;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Post bodies of the WebView requests.<br/>
+ * Page js tags request url with the id and sends the body with the same id (see post_data_interceptor.js).<br/>
+ * So, overlapped requests get their own bodies. Body is removed after use or when expired.<br/>
+ * Only requests accepted by the {@link Replayer} are tagged. Replayer sends them itself with the id stripped,
+ * so the id never reaches the server and no body is kept for the requests nobody takes.<br/>
+ * Urls without id fall back to the last posted body.
+ */
+public class PostDataRegistry {
+    public static final String REQUEST_ID_PARAM = "sytv_rid";
+    private static final Pattern REQUEST_ID_PATTERN = Pattern.compile("[?&]" + REQUEST_ID_PARAM + "=([^&#]*)");
+    private static final int MAX_ENTRIES = 64;
+    private static final long EXPIRE_TIME_MS = 30_000;
+    private static PostDataRegistry sInstance;
+    private final Map<String, Entry> mBodies = new ConcurrentHashMap<>();
+    private final Map<String, Replayer> mReplayers = new ConcurrentHashMap<>();
+
+    /**
+     * Interceptor that sends tagged requests on behalf of the WebView
+     */
+    public interface Replayer {
+        /**
+         * Called from the js thread before the request is opened
+         */
+        boolean isReplayed(String url);
+    }
+
+    public static synchronized PostDataRegistry instance() {
+        if (sInstance == null) {
+            sInstance = new PostDataRegistry();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Replaces previous replayer of the same urls
+     *
+     * @param urlMarker part of the replayed urls
+     */
+    public void setReplayer(String urlMarker, Replayer replayer) {
+        mReplayers.put(urlMarker, replayer);
+    }
+
+    /**
+     * Whether page js should tag the request with the id
+     */
+    public boolean isTagged(String url) {
+        if (url == null) {
+            return false;
+        }
+
+        for (Map.Entry<String, Replayer> item : mReplayers.entrySet()) {
+            if (url.contains(item.getKey()) && item.getValue().isReplayed(url)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param content request id and post body delimited by new line
+     */
+    public void put(String content) {
+        int delim = content == null ? -1 : content.indexOf('\n');
+
+        if (delim <= 0) {
+            return;
+        }
+
+        if (mBodies.size() >= MAX_ENTRIES) {
+            removeExpired(System.currentTimeMillis(), true);
+        }
+
+        mBodies.put(content.substring(0, delim), new Entry(content.substring(delim + 1)));
+    }
+
+    /**
+     * Body of the request (removed from the registry)
+     * @return body or null
+     */
+    public String take(String url) {
+        String requestId = getRequestId(url);
+
+        if (requestId == null) {
+            return CommonApplication.getPreferences().getPostData(); // untagged request
+        }
+
+        removeExpired(System.currentTimeMillis(), false);
+
+        Entry entry = mBodies.remove(requestId);
+
+        return entry != null ? entry.mBody : null;
+    }
+
+    /**
+     * Url that should be sent to the server
+     */
+    public static String stripRequestId(String url) {
+        if (url == null || !url.contains(REQUEST_ID_PARAM)) {
+            return url;
+        }
+
+        Matcher matcher = REQUEST_ID_PATTERN.matcher(url);
+
+        if (!matcher.find()) {
+            return url;
+        }
+
+        int start = matcher.start();
+        int end = matcher.end();
+
+        if (url.charAt(start) == '?') {
+            // keep question mark before the next param
+            return end < url.length() && url.charAt(end) == '&' ? url.substring(0, start + 1) + url.substring(end + 1) : url.substring(0, start) + url.substring(end);
+        }
+
+        return url.substring(0, start) + url.substring(end);
+    }
+
+    /**
+     * Tagged url must not be sent by the WebView as is
+     */
+    public static boolean hasRequestId(String url) {
+        return getRequestId(url) != null;
+    }
+
+    private static String getRequestId(String url) {
+        if (url == null || !url.contains(REQUEST_ID_PARAM)) {
+            return null;
+        }
+
+        Matcher matcher = REQUEST_ID_PATTERN.matcher(url);
+
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @param evictOldest whether to free space when nothing has expired
+     */
+    private void removeExpired(long now, boolean evictOldest) {
+        String oldestId = null;
+        long oldestTime = Long.MAX_VALUE;
+
+        for (Iterator<Map.Entry<String, Entry>> iterator = mBodies.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, Entry> item = iterator.next();
+            long time = item.getValue().mTimeMs;
+
+            if (now - time > EXPIRE_TIME_MS) {
+                iterator.remove();
+            } else if (time < oldestTime) {
+                oldestTime = time;
+                oldestId = item.getKey();
+            }
+        }
+
+        if (evictOldest && oldestId != null && mBodies.size() >= MAX_ENTRIES) {
+            mBodies.remove(oldestId);
+        }
+    }
+
+    private static class Entry {
+        private final String mBody;
+        private final long mTimeMs = System.currentTimeMillis();
+
+        Entry(String body) {
+            mBody = body;
+        }
+    }
+}
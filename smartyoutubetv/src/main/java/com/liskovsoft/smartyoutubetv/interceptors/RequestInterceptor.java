@@ -8,12 +8,13 @@ import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.okhttp.OkHttpHelpers;
 import com.liskovsoft.smartyoutubetv.R;
 import com.liskovsoft.smartyoutubetv.misc.HeaderManager;
+import com.liskovsoft.smartyoutubetv.misc.OkHttpManager;
 
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
 
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyUrlEncodedQueryString;
+import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.Response;
 
@@ -21,7 +22,7 @@ public abstract class RequestInterceptor {
 
     private static final String TAG = RequestInterceptor.class.getSimpleName();
 
-    private static final WebResourceResponse EMPTY_RESPONSE = new WebResourceResponse(null, null, null);
+    static final WebResourceResponse EMPTY_RESPONSE = new WebResourceResponse(null, null, null);
 
     private final Context mContext;
     private final HeaderManager mManager;
@@ -30,6 +31,22 @@ public abstract class RequestInterceptor {
 
     public abstract WebResourceResponse intercept(String url);
 
+    /**
+     * Decide who handles the url. Called concurrently from the WebView io threads, so don't keep per request state here.<br/>
+     * By default the url is handled by this interceptor when {@link #test(String)} passes.
+     */
+    public InterceptDecision route(String url) {
+        return test(url) ? InterceptDecision.handleBy(this) : InterceptDecision.SKIP;
+    }
+
+    /**
+     * Urls that this interceptor could accept. Used by {@link RequestInterceptorProcessor} to skip {@link #test(String)} call.<br/>
+     * Return {@code null} to be tested against every url.
+     */
+    public UrlRules getUrlRules() {
+        return null;
+    }
+
     public RequestInterceptor(Context context) {
         mContext = context;
         mManager = new HeaderManager(context);
@@ -95,13 +112,13 @@ public abstract class RequestInterceptor {
     }
 
     protected InputStream getUrlData(String url) {
-        return getUrlData(url, mManager.getHeaders());
+        return getUrlData(url, mManager.getHeaderSnapshot());
     }
 
-    protected InputStream getUrlData(String url, Map<String, String> headers) {
+    protected InputStream getUrlData(String url, Headers headers) {
         InputStream result = null;
 
-        Response response = OkHttpHelpers.doGetOkHttpRequest(url, headers);
+        Response response = OkHttpManager.instance().doGet(url, headers);
 
         if (response != null && response.body() != null) {
             result = response.body().byteStream();
@@ -128,16 +145,25 @@ public abstract class RequestInterceptor {
         return postJsonData(url, body, null);
     }
 
+    /**
+     * @param headers per request overrides (common headers aren't changed)
+     */
     protected InputStream postJsonData(String url, String body, Map<String, String> headers) {
         InputStream result = null;
 
-        HashMap<String, String> resultHeaders = mManager.getHeaders();
+        Headers resultHeaders = mManager.getHeaderSnapshot();
 
         if (headers != null) {
-            resultHeaders.putAll(headers);
+            Headers.Builder builder = resultHeaders.newBuilder();
+
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                builder.set(header.getKey(), header.getValue());
+            }
+
+            resultHeaders = builder.build();
         }
 
-        Response response = OkHttpHelpers.doPostOkHttpRequest(url, resultHeaders, body, "application/json");
+        Response response = OkHttpManager.instance().doPost(url, resultHeaders, body, "application/json");
 
         if (response != null && response.body() != null) {
             result = response.body().byteStream();
@@ -147,7 +173,7 @@ public abstract class RequestInterceptor {
     }
 
     protected WebResourceResponse postFormData(String url, String body) {
-        Response response = OkHttpHelpers.doPostOkHttpRequest(url, mManager.getHeaders(), body, "application/x-www-form-urlencoded");
+        Response response = OkHttpManager.instance().doPost(url, mManager.getHeaderSnapshot(), body, "application/x-www-form-urlencoded");
 
         return createResponse(response);
     }
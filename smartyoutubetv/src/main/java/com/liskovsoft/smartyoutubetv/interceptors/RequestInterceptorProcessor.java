@@ -18,6 +18,8 @@ import java.util.List;
 public class RequestInterceptorProcessor {
     private static final String TAG = RequestInterceptorProcessor.class.getSimpleName();
     private final List<RequestInterceptor> mInterceptors;
+    private final List<InterceptorStats> mStats;
+    private final UrlDispatchIndex mIndex;
     //private final FileExtensionInterceptor mFileExtensionInterceptor;
 
     public RequestInterceptorProcessor(Context context) {
@@ -31,12 +33,23 @@ public class RequestInterceptorProcessor {
         mInterceptors.add(new PlaybackStatsInterceptor(context));
         mInterceptors.add(new LegacyMainScriptManagerInterceptor(context));
         //mInterceptors.add(new AllUrlsInterceptor(context));
+
+        List<UrlRules> rules = new ArrayList<>();
+        mStats = new ArrayList<>();
+
+        for (RequestInterceptor interceptor : mInterceptors) {
+            rules.add(interceptor.getUrlRules());
+            mStats.add(new InterceptorStats(interceptor.getClass().getSimpleName()));
+        }
+
+        mIndex = new UrlDispatchIndex(rules);
     }
 
     /**
      * Calling interceptors until encountering non-null response.<br/>
      * So, interceptors order is important!<br/>
-     * It's critical for Ad blocking, for example.
+     * It's critical for Ad blocking, for example.<br/>
+     * Thread safe: WebView calls it from the multiple io threads.
      */
     public WebResourceResponse process(String url) {
         Log.d(TAG, "Intercepting url: " + url);
@@ -48,9 +61,25 @@ public class RequestInterceptorProcessor {
         //    return null;
         //}
 
-        for (RequestInterceptor interceptor : mInterceptors) {
-            if (interceptor.test(url)) {
-                result = interceptor.intercept(url);
+        // skip interceptors which rules don't match the url
+        long candidates = mIndex.classify(url);
+
+        for (int i = 0; i < mInterceptors.size(); i++) {
+            if ((candidates & (1L << i)) == 0) {
+                continue;
+            }
+
+            RequestInterceptor interceptor = mInterceptors.get(i);
+            InterceptorStats stats = mStats.get(i);
+
+            long startNanos = System.nanoTime();
+            InterceptDecision decision = interceptor.route(url);
+            stats.onTest(decision.isMatched(), System.nanoTime() - startNanos);
+
+            if (decision.isMatched()) {
+                startNanos = System.nanoTime();
+                result = decision.execute(url);
+                stats.onIntercept(result != null, System.nanoTime() - startNanos);
 
                 // Stop calling interceptors when encountering non-null response.
                 // Usually last interception in the list
@@ -62,4 +91,25 @@ public class RequestInterceptorProcessor {
 
         return result;
     }
+
+    /**
+     * Dump per interceptor hit and latency counters into the log
+     */
+    public String dumpStats() {
+        StringBuilder result = new StringBuilder();
+
+        for (InterceptorStats stats : mStats) {
+            result.append(stats).append('\n');
+        }
+
+        Log.d(TAG, "Interceptors stats:\n" + result);
+
+        return result.toString();
+    }
+
+    public void resetStats() {
+        for (InterceptorStats stats : mStats) {
+            stats.reset();
+        }
+    }
 }
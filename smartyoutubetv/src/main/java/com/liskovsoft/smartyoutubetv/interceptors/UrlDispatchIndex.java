@@ -0,0 +1,164 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies url in one pass against the {@link UrlRules} of all interceptors.<br/>
+ * Path prefixes are stored in the trie, suffixes in the reversed trie (suffix table).<br/>
+ * Substrings are few, they're checked one by one.<br/>
+ * Result is a bit mask of the interceptors that could accept the url.
+ */
+public class UrlDispatchIndex {
+    private static final int MAX_ENTRIES = 64;
+    private final Node mPrefixRoot = new Node();
+    private final Node mSuffixRoot = new Node();
+    private final List<String> mSubstrings = new ArrayList<>();
+    private final List<Long> mSubstringMasks = new ArrayList<>();
+    private long mAlwaysMask;
+
+    /**
+     * @param rules list of rules per interceptor, {@code null} item means: interceptor should see all urls
+     */
+    public UrlDispatchIndex(List<UrlRules> rules) {
+        if (rules.size() > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Too many interceptors: " + rules.size());
+        }
+
+        for (int i = 0; i < rules.size(); i++) {
+            UrlRules rule = rules.get(i);
+            long bit = 1L << i;
+
+            if (rule == null) {
+                mAlwaysMask |= bit;
+                continue;
+            }
+
+            for (String prefix : rule.getPathPrefixes()) {
+                Node node = mPrefixRoot;
+                for (int j = 0; j < prefix.length(); j++) {
+                    node = node.getOrCreate(prefix.charAt(j));
+                }
+                node.mask |= bit;
+            }
+
+            for (String suffix : rule.getSuffixes()) {
+                Node node = mSuffixRoot;
+                for (int j = suffix.length() - 1; j >= 0; j--) {
+                    node = node.getOrCreate(suffix.charAt(j));
+                }
+                node.mask |= bit;
+            }
+
+            for (String substring : rule.getSubstrings()) {
+                mSubstrings.add(substring);
+                mSubstringMasks.add(bit);
+            }
+        }
+    }
+
+    public long classify(String url) {
+        long result = mAlwaysMask;
+
+        if (url == null) {
+            return result;
+        }
+
+        int pathStart = findPathStart(url);
+
+        if (pathStart != -1) {
+            Node node = mPrefixRoot;
+            for (int i = pathStart; i < url.length() && node != null; i++) {
+                node = node.get(url.charAt(i));
+                if (node != null) {
+                    result |= node.mask;
+                }
+            }
+        }
+
+        result |= classifySuffix(url, url.length());
+
+        int queryStart = findQueryStart(url);
+
+        if (queryStart != -1) {
+            result |= classifySuffix(url, queryStart);
+        }
+
+        for (int i = 0; i < mSubstrings.size(); i++) {
+            if (url.contains(mSubstrings.get(i))) {
+                result |= mSubstringMasks.get(i);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param end end of the matched part (exclusive)
+     */
+    private long classifySuffix(String url, int end) {
+        long result = 0;
+
+        Node node = mSuffixRoot;
+        for (int i = end - 1; i >= 0 && node != null; i--) {
+            node = node.get(url.charAt(i));
+            if (node != null) {
+                result |= node.mask;
+            }
+        }
+
+        return result;
+    }
+
+    private static int findQueryStart(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int findPathStart(String url) {
+        int hostStart = url.indexOf("://");
+        hostStart = hostStart == -1 ? 0 : hostStart + 3;
+        return url.indexOf('/', hostStart);
+    }
+
+    private static final class Node {
+        private char[] mKeys = new char[0];
+        private Node[] mChildren = new Node[0];
+        long mask;
+
+        Node get(char key) {
+            char[] keys = mKeys;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return mChildren[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrCreate(char key) {
+            Node node = get(key);
+
+            if (node == null) {
+                int len = mKeys.length;
+                char[] keys = new char[len + 1];
+                Node[] children = new Node[len + 1];
+                System.arraycopy(mKeys, 0, keys, 0, len);
+                System.arraycopy(mChildren, 0, children, 0, len);
+                node = new Node();
+                keys[len] = key;
+                children[len] = node;
+                mKeys = keys;
+                mChildren = children;
+            }
+
+            return node;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declares which urls a {@link RequestInterceptor} is interested in.<br/>
+ * Used by {@link UrlDispatchIndex} as a prefilter, so rules must cover every url the interceptor may accept.<br/>
+ * Path prefixes are matched against the url path (after the host), suffixes against the url with or without query,
+ * substrings against the whole url (same as {@code url.contains(...)} in {@link RequestInterceptor#test(String)}).
+ */
+public class UrlRules {
+    private final List<String> mPathPrefixes = new ArrayList<>();
+    private final List<String> mSuffixes = new ArrayList<>();
+    private final List<String> mSubstrings = new ArrayList<>();
+
+    public UrlRules addPathPrefix(String... prefixes) {
+        Collections.addAll(mPathPrefixes, prefixes);
+        return this;
+    }
+
+    public UrlRules addSuffix(String... suffixes) {
+        Collections.addAll(mSuffixes, suffixes);
+        return this;
+    }
+
+    public UrlRules addSubstring(String... substrings) {
+        Collections.addAll(mSubstrings, substrings);
+        return this;
+    }
+
+    public UrlRules addAll(UrlRules rules) {
+        if (rules != null) {
+            mPathPrefixes.addAll(rules.mPathPrefixes);
+            mSuffixes.addAll(rules.mSuffixes);
+            mSubstrings.addAll(rules.mSubstrings);
+        }
+
+        return this;
+    }
+
+    public List<String> getPathPrefixes() {
+        return mPathPrefixes;
+    }
+
+    public List<String> getSuffixes() {
+        return mSuffixes;
+    }
+
+    public List<String> getSubstrings() {
+        return mSubstrings;
+    }
+}
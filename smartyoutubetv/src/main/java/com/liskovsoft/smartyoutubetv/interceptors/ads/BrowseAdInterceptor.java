@@ -8,7 +8,9 @@ import com.liskovsoft.sharedutils.helpers.AssetHelper;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.CommonApplication;
+import com.liskovsoft.smartyoutubetv.interceptors.PostDataRegistry;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
+import com.liskovsoft.smartyoutubetv.interceptors.UrlRules;
 import com.liskovsoft.smartyoutubetv.misc.SmartUtils;
 import com.liskovsoft.smartyoutubetv.misc.UserAgentManager;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
@@ -24,7 +26,7 @@ import java.util.Map;
  * Main trick is to change user agent to Cobalt.<br/>
  * NOTE: set user agent via js produce next error: Refused to set unsafe header "User-Agent"
  */
-public class BrowseAdInterceptor extends RequestInterceptor {
+public class BrowseAdInterceptor extends RequestInterceptor implements BrowsePipeline.Fetcher, PostDataRegistry.Replayer {
     private static final String TAG = BrowseAdInterceptor.class.getSimpleName();
     private static final String BROWSE_URL = "/youtubei/v1/browse";
     private static final String HOME_ID = "\"browseId\":\"default\"";
@@ -41,6 +43,7 @@ public class BrowseAdInterceptor extends RequestInterceptor {
     private boolean mIsAdBlockEnabled;
     private boolean mIsEnableVideoMenu;
     private boolean mIsCompatibleSettings;
+    private final BrowsePipeline mPipeline;
 
     public BrowseAdInterceptor(Context context) {
         super(context);
@@ -51,6 +54,9 @@ public class BrowseAdInterceptor extends RequestInterceptor {
         mIsEnableVideoMenu = mPrefs.getEnableVideoMenu();
         mIsCompatibleSettings = mIsEnableVideoMenu || (mIsAdBlockEnabled && !mIsXWalk);
         initHeaders();
+        mPipeline = BrowsePipeline.instance();
+        mPipeline.setFetcher(this);
+        PostDataRegistry.instance().setReplayer(BROWSE_URL, this);
     }
 
     private void initHeaders() {
@@ -61,6 +67,11 @@ public class BrowseAdInterceptor extends RequestInterceptor {
         }
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        return new UrlRules().addSubstring(BROWSE_URL);
+    }
+
     @Override
     public boolean test(String url) {
         return mIsCompatibleSettings && (url != null && url.contains(BROWSE_URL));
@@ -68,16 +79,43 @@ public class BrowseAdInterceptor extends RequestInterceptor {
 
     @Override
     public WebResourceResponse intercept(String url) {
-        WebResourceResponse response = filterBannerData(url);
+        // body of this exact request (overlapped requests have their own)
+        String postData = PostDataRegistry.instance().take(url);
+        String upstreamUrl = PostDataRegistry.stripRequestId(url);
+
+        WebResourceResponse response = filterBannerData(upstreamUrl, postData);
 
         if (response == null) { // menu already filtered unless ads is disabled
-            response = filterLongPressVideoMenu(url);
+            response = filterLongPressVideoMenu(upstreamUrl, postData);
+        }
+
+        if (response == null && PostDataRegistry.hasRequestId(url)) {
+            response = passThrough(upstreamUrl, postData);
         }
 
         return response;
     }
 
-    private WebResourceResponse filterBannerData(String url) {
+    @Override
+    public boolean isReplayed(String url) {
+        return mIsCompatibleSettings;
+    }
+
+    /**
+     * Tagged request isn't filtered. Send it unchanged, so the request id doesn't reach the server.
+     */
+    private WebResourceResponse passThrough(String url, String postData) {
+        if (postData == null) {
+            Log.e(TAG, "Post body of the tagged request is expired. Url: " + url);
+            return null;
+        }
+
+        InputStream urlData = postJsonData(url, postData);
+
+        return urlData != null ? createResponse("application/json", null, urlData) : null;
+    }
+
+    private WebResourceResponse filterBannerData(String url, String postData) {
         if (mIsXWalk) { // performance impact
             return null;
         }
@@ -86,49 +124,40 @@ public class BrowseAdInterceptor extends RequestInterceptor {
             return null;
         }
 
-        String postData = mPrefs.getPostData();
-
         if (Strings.isNullOrEmpty(postData)) {
             Log.e(TAG, "Post body is empty! Skipping url: " + url);
             return null;
         }
 
-        boolean isHome = postData.contains(HOME_ID) || postData.contains(TOPICS_ID);
-
-        if (!isHome) {
+        if (!isHome(postData)) {
             Log.e(TAG, "Not a Home page. Skip filtering! Url: " + url + " Post data: " + postData);
             return null;
         }
 
-        InputStream urlData = postJsonData(url, postData, mHeaders);
+        InputStream urlData = mPipeline.fetch(url, postData, this);
 
         if (urlData == null) {
             Log.e(TAG, "Error. Response is empty. Url: " + url + ". Post Data: " + postData);
             return null;
         }
 
-        JsonBrowseAdParser parser = new JsonBrowseAdParser(urlData);
+        // masthead is removed while WebView reads the response
+        InputStream result = new MastheadFilterInputStream(urlData);
 
         if (Log.getLogType().equals(Log.LOG_TYPE_FILE)) {
-            Log.d(TAG, "Searching and removing tv masthead section..." + Helpers.toString(parser.toStream()));
-        }
-
-
-        if (parser.removeMastHead()) {
-            Log.d(TAG, "Success. Masthead has been removed!");
-            return createResponse(MediaType.parse("application/json"), parser.toStream());
+            String content = Helpers.toString(result);
+            Log.d(TAG, "Searching and removing tv masthead section..." + content);
+            result = Helpers.toStream(content);
         }
 
-        return null;
+        return createResponse(MediaType.parse("application/json"), result);
     }
 
-    private WebResourceResponse filterLongPressVideoMenu(String url) {
+    private WebResourceResponse filterLongPressVideoMenu(String url, String postData) {
         if (!mIsEnableVideoMenu) { // rich menu not enabled
             return null;
         }
 
-        String postData = mPrefs.getPostData();
-
         if (postData == null) {
             Log.e(TAG, "Post body is empty! Skipping url: " + url);
             return null;
@@ -136,7 +165,7 @@ public class BrowseAdInterceptor extends RequestInterceptor {
 
         WebResourceResponse result = null;
 
-        InputStream dataStream = postJsonData(url, postData, mHeaders);
+        InputStream dataStream = mPipeline.fetch(url, postData, this);
 
         if (dataStream != null) {
             result = createResponse("application/json", null, dataStream);
@@ -145,6 +174,24 @@ public class BrowseAdInterceptor extends RequestInterceptor {
         return result;
     }
 
+    private boolean isHome(String postData) {
+        return postData.contains(HOME_ID) || postData.contains(TOPICS_ID);
+    }
+
+    @Override
+    public boolean accept(String postData) {
+        if (!mIsCompatibleSettings || Strings.isNullOrEmpty(postData)) {
+            return false;
+        }
+
+        return mIsEnableVideoMenu || (mIsAdBlockEnabled && !mIsXWalk && isHome(postData));
+    }
+
+    @Override
+    public InputStream fetch(String url, String postData) {
+        return postJsonData(url, postData, mHeaders);
+    }
+
     private InputStream getTestResponse() {
         return AssetHelper.getAsset(mContext, "tests/tv_masthead2_origin.json");
     }
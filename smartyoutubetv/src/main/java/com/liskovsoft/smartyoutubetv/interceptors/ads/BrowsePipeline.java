@@ -0,0 +1,308 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Async browse requests.<br/>
+ * Upstream POST is started as soon as the post body is known (see post_data_interceptor.js).<br/>
+ * Identical in-flight requests (same path and post body) share one call.<br/>
+ * Response is streamed to all consumers while it's being downloaded.
+ */
+public class BrowsePipeline {
+    private static final String TAG = BrowsePipeline.class.getSimpleName();
+    private static final int THREAD_COUNT = 3;
+    private static final long EXPIRE_TIME_MS = 10_000;
+    private static final long READ_TIMEOUT_MS = 30_000;
+    private static BrowsePipeline sInstance;
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREAD_COUNT);
+    private final Map<String, SharedBody> mRequests = new HashMap<>();
+    private Fetcher mFetcher;
+
+    public interface Fetcher {
+        /**
+         * Whether response for this request will be requested by the WebView through the interceptor
+         */
+        boolean accept(String postData);
+        InputStream fetch(String url, String postData);
+    }
+
+    public static synchronized BrowsePipeline instance() {
+        if (sInstance == null) {
+            sInstance = new BrowsePipeline();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Prefetch is possible only when fetcher is set
+     */
+    public synchronized void setFetcher(Fetcher fetcher) {
+        mFetcher = fetcher;
+    }
+
+    /**
+     * Start request before WebView asks for it
+     *
+     * @param content url and post body delimited by new line
+     */
+    public void prefetch(String content) {
+        int delim = content == null ? -1 : content.indexOf('\n');
+
+        if (delim == -1) {
+            return;
+        }
+
+        String url = content.substring(0, delim);
+        String postData = content.substring(delim + 1);
+
+        synchronized (this) {
+            if (mFetcher == null || !mFetcher.accept(postData)) {
+                return;
+            }
+
+            Log.d(TAG, "Prefetching browse: " + url);
+            getOrStart(url, postData, mFetcher);
+        }
+    }
+
+    /**
+     * Join in-flight request or start a new one. Blocks until response begins.
+     *
+     * @return response stream or null on error
+     */
+    public InputStream fetch(String url, String postData, Fetcher fetcher) {
+        SharedBody body;
+
+        synchronized (this) {
+            body = getOrStart(url, postData, fetcher);
+        }
+
+        return body.newReader();
+    }
+
+    private SharedBody getOrStart(String url, String postData, Fetcher fetcher) {
+        removeExpired();
+
+        String key = getKey(url, postData);
+        SharedBody body = mRequests.get(key);
+
+        if (body != null) {
+            Log.d(TAG, "Joining in-flight browse request: " + url);
+
+            if (body.isDone()) {
+                mRequests.remove(key); // completed prefetch could be used only once
+            }
+
+            body.markClaimed();
+
+            return body;
+        }
+
+        SharedBody newBody = new SharedBody();
+        mRequests.put(key, newBody);
+
+        mExecutor.execute(() -> {
+            newBody.download(fetcher.fetch(url, postData));
+
+            synchronized (BrowsePipeline.this) {
+                if (newBody.isClaimed() && mRequests.get(key) == newBody) {
+                    mRequests.remove(key);
+                }
+            }
+        });
+
+        return newBody;
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<SharedBody> iterator = mRequests.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Whole body is used: same browseId could come with different params or context
+     */
+    private static String getKey(String url, String postData) {
+        int queryStart = url.indexOf('?');
+        String path = queryStart == -1 ? url : url.substring(0, queryStart);
+
+        return path + "|" + postData;
+    }
+
+    /**
+     * Response body that is being downloaded. Multiple readers are supported.
+     */
+    private static class SharedBody {
+        private byte[] mData = new byte[16 * 1024];
+        private int mSize;
+        private boolean mDone;
+        private boolean mFailed;
+        private boolean mClaimed;
+        private long mDoneTimeMs;
+
+        void download(InputStream content) {
+            if (content == null) {
+                finish(true);
+                return;
+            }
+
+            byte[] buffer = new byte[8 * 1024];
+
+            try {
+                int size;
+                while ((size = content.read(buffer)) != -1) {
+                    append(buffer, size);
+                }
+                finish(false);
+            } catch (IOException e) {
+                Log.e(TAG, "Browse download error: " + e.getMessage());
+                finish(true);
+            } finally {
+                try {
+                    content.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        private synchronized void append(byte[] buffer, int size) {
+            if (mSize + size > mData.length) {
+                mData = Arrays.copyOf(mData, Math.max(mSize + size, mData.length * 2));
+            }
+
+            System.arraycopy(buffer, 0, mData, mSize, size);
+            mSize += size;
+            notifyAll();
+        }
+
+        private synchronized void finish(boolean failed) {
+            mDone = true;
+            mFailed = failed;
+            mDoneTimeMs = System.currentTimeMillis();
+            notifyAll();
+        }
+
+        synchronized boolean isDone() {
+            return mDone;
+        }
+
+        synchronized void markClaimed() {
+            mClaimed = true;
+        }
+
+        synchronized boolean isClaimed() {
+            return mClaimed;
+        }
+
+        synchronized boolean isExpired(long now) {
+            return mDone && now - mDoneTimeMs > EXPIRE_TIME_MS;
+        }
+
+        /**
+         * Waits for the first bytes
+         *
+         * @return null if request has failed before any data received
+         */
+        InputStream newReader() {
+            markClaimed();
+
+            synchronized (this) {
+                if (!awaitData(0)) {
+                    return null;
+                }
+
+                if (mFailed && mSize == 0) {
+                    return null;
+                }
+            }
+
+            return new Reader();
+        }
+
+        /**
+         * @return false on timeout
+         */
+        private synchronized boolean awaitData(int pos) {
+            long deadline = System.currentTimeMillis() + READ_TIMEOUT_MS;
+
+            while (pos == mSize && !mDone) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    Log.e(TAG, "Browse response timeout");
+                    return false;
+                }
+
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private class Reader extends InputStream {
+            private int mPos;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                int size = read(single, 0, 1);
+                return size == -1 ? -1 : single[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+
+                synchronized (SharedBody.this) {
+                    if (!awaitData(mPos)) {
+                        throw new IOException("Browse response timeout");
+                    }
+
+                    if (mPos == mSize) {
+                        if (mFailed) {
+                            throw new IOException("Browse response is incomplete");
+                        }
+
+                        return -1;
+                    }
+
+                    int size = Math.min(len, mSize - mPos);
+                    System.arraycopy(mData, mPos, b, off, size);
+                    mPos += size;
+
+                    return size;
+                }
+            }
+
+            @Override
+            public int available() {
+                synchronized (SharedBody.this) {
+                    return mSize - mPos;
+                }
+            }
+        }
+    }
+}
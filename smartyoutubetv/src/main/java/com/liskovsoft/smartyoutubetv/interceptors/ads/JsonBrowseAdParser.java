@@ -1,21 +1,18 @@
 package com.liskovsoft.smartyoutubetv.interceptors.ads;
 
-import com.jayway.jsonpath.DocumentContext;
-import com.jayway.jsonpath.JsonPath;
 import com.liskovsoft.sharedutils.helpers.Helpers;
-import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.parsers.ParserUtils;
 
 import java.io.InputStream;
 
+/**
+ * Buffered variant of the {@link MastheadFilterInputStream}. Use the stream directly when possible.
+ */
 public class JsonBrowseAdParser {
-    // All objects with property 'tvMastheadRenderer'
-    // ex: https://github.com/json-path/JsonPath
-    private static final JsonPath TV_MASTHEAD_SECTION_ANY = JsonPath.compile("$..[?(@.tvMastheadRenderer)]");
-
-    private final DocumentContext mParser;
+    private final MastheadFilterInputStream mFilter;
+    private String mResult;
 
     public JsonBrowseAdParser(InputStream content) {
-        mParser = ParserUtils.createJsonInfoParser(content);
+        mFilter = new MastheadFilterInputStream(content);
     }
 
     public static JsonBrowseAdParser parse(InputStream content) {
@@ -23,17 +20,20 @@ public class JsonBrowseAdParser {
     }
 
     public boolean removeMastHead() {
-        boolean result = false;
-
-        if (ParserUtils.exists(TV_MASTHEAD_SECTION_ANY, mParser)) {
-            ParserUtils.delete(TV_MASTHEAD_SECTION_ANY, mParser);
-            result = true;
-        }
+        readFully();
 
-        return result;
+        return mFilter.isRemoved();
     }
 
     public InputStream toStream() {
-        return Helpers.toStream(mParser.jsonString());
+        readFully();
+
+        return Helpers.toStream(mResult);
+    }
+
+    private void readFully() {
+        if (mResult == null) {
+            mResult = Helpers.toString(mFilter);
+        }
     }
 }
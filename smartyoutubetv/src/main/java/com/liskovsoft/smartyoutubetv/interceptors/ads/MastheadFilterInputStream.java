@@ -0,0 +1,373 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming json token filter that drops array elements containing 'tvMastheadRenderer' property
+ * (same as <code>$..[?(@.tvMastheadRenderer)]</code>).<br/>
+ * Property could be at any position, so the array element is kept in the output buffer till it ends,
+ * everything before the first buffered element is sent immediately.<br/>
+ * Element that grows past {@link #MAX_CANDIDATE_SIZE} is sent as is. If the property is found later (or outside of an array element)
+ * only the property itself is dropped.<br/>
+ * No document tree is built. Output matches Gson's compact serializer (nulls aren't written).
+ */
+public class MastheadFilterInputStream extends InputStream {
+    private static final String TV_MASTHEAD = "tvMastheadRenderer";
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_CANDIDATE_SIZE = 4 * 1024;
+    private final JsonReader mReader;
+    private final List<Frame> mFrames = new ArrayList<>();
+    private byte[] mOut = new byte[CHUNK_SIZE + MAX_CANDIDATE_SIZE];
+    private int mLength;
+    private int mPos;
+    private int mReady;
+    private String mPendingName;
+    private boolean mEndOfDocument;
+    private boolean mRemoved;
+
+    /**
+     * Open object or array
+     */
+    private static final class Frame {
+        private int mStart;
+        private boolean mRemovable;
+        private final boolean mArray;
+        private int mCount;
+
+        Frame(int start, boolean removable, boolean array) {
+            mStart = start;
+            mRemovable = removable;
+            mArray = array;
+        }
+    }
+
+    public MastheadFilterInputStream(InputStream content) {
+        mReader = new JsonReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Valid only after the stream has been read fully
+     */
+    public boolean isRemoved() {
+        return mRemoved;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureReady()) {
+            return -1;
+        }
+
+        return mOut[mPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+
+        if (!ensureReady()) {
+            return -1;
+        }
+
+        int count = Math.min(len, mReady - mPos);
+        System.arraycopy(mOut, mPos, b, off, count);
+        mPos += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return mReady - mPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    private boolean ensureReady() throws IOException {
+        while (mPos == mReady) {
+            if (mEndOfDocument && mPos == mLength) {
+                return false;
+            }
+
+            compact();
+
+            while (!mEndOfDocument && getReadyLength() < CHUNK_SIZE) {
+                copyToken();
+                limitCandidates();
+            }
+
+            mReady = mEndOfDocument ? mLength : getReadyLength();
+        }
+
+        return true;
+    }
+
+    /**
+     * Output before the first array element that still could be dropped
+     */
+    private int getReadyLength() {
+        for (Frame frame : mFrames) {
+            if (frame.mRemovable) {
+                return frame.mStart;
+            }
+        }
+
+        return mLength;
+    }
+
+    /**
+     * Large elements are sent as is, so the buffer stays small
+     */
+    private void limitCandidates() {
+        for (Frame frame : mFrames) {
+            if (!frame.mRemovable) {
+                continue;
+            }
+
+            if (mLength - frame.mStart <= MAX_CANDIDATE_SIZE) {
+                break; // nested elements are smaller
+            }
+
+            frame.mRemovable = false;
+        }
+    }
+
+    /**
+     * Moves output that hasn't been sent yet to the buffer start
+     */
+    private void compact() {
+        if (mPos == 0) {
+            return;
+        }
+
+        System.arraycopy(mOut, mPos, mOut, 0, mLength - mPos);
+
+        for (Frame frame : mFrames) {
+            frame.mStart -= mPos;
+        }
+
+        mLength -= mPos;
+        mReady -= mPos;
+        mPos = 0;
+    }
+
+    private void copyToken() throws IOException {
+        JsonToken token = mReader.peek();
+
+        switch (token) {
+            case BEGIN_OBJECT:
+                mReader.beginObject();
+                // only array elements are matched by the filter
+                boolean isElement = !mFrames.isEmpty() && mFrames.get(mFrames.size() - 1).mArray;
+                mFrames.add(new Frame(beginValue(), isElement, false));
+                write('{');
+                break;
+            case END_OBJECT:
+                mReader.endObject();
+                endContainer('}');
+                break;
+            case BEGIN_ARRAY:
+                mReader.beginArray();
+                mFrames.add(new Frame(beginValue(), false, true));
+                write('[');
+                break;
+            case END_ARRAY:
+                mReader.endArray();
+                endContainer(']');
+                break;
+            case NAME:
+                onName(mReader.nextName());
+                break;
+            case STRING:
+                beginValue();
+                writeString(mReader.nextString());
+                endValue();
+                break;
+            case NUMBER:
+                beginValue();
+                writeAscii(mReader.nextString()); // keep original representation
+                endValue();
+                break;
+            case BOOLEAN:
+                beginValue();
+                writeAscii(String.valueOf(mReader.nextBoolean()));
+                endValue();
+                break;
+            case NULL:
+                mReader.nextNull();
+
+                if (mPendingName != null) {
+                    mPendingName = null; // null properties aren't written
+                } else {
+                    beginValue();
+                    writeAscii("null");
+                    endValue();
+                }
+                break;
+            case END_DOCUMENT:
+                mEndOfDocument = true;
+                break;
+        }
+    }
+
+    private void onName(String name) throws IOException {
+        Frame frame = mFrames.get(mFrames.size() - 1);
+
+        if (TV_MASTHEAD.equals(name) && frame.mRemovable) {
+            skipRestOfObject();
+            mLength = frame.mStart;
+            mFrames.remove(mFrames.size() - 1);
+            mRemoved = true;
+        } else if (TV_MASTHEAD.equals(name)) { // element is sent already: drop the property only
+            mReader.skipValue();
+            mRemoved = true;
+        } else {
+            mPendingName = name;
+        }
+    }
+
+    /**
+     * Writes separator and property name
+     *
+     * @return start of the value in the output (separator included)
+     */
+    private int beginValue() {
+        int start = mLength;
+
+        if (mFrames.isEmpty()) {
+            return start;
+        }
+
+        if (mFrames.get(mFrames.size() - 1).mCount > 0) {
+            write(',');
+        }
+
+        if (mPendingName != null) {
+            writeString(mPendingName);
+            write(':');
+            mPendingName = null;
+        }
+
+        return start;
+    }
+
+    private void endValue() {
+        if (!mFrames.isEmpty()) {
+            mFrames.get(mFrames.size() - 1).mCount++;
+        }
+    }
+
+    private void endContainer(char end) {
+        mFrames.remove(mFrames.size() - 1);
+        write(end);
+        endValue();
+    }
+
+    private void skipRestOfObject() throws IOException {
+        mReader.skipValue();
+
+        while (mReader.hasNext()) {
+            mReader.nextName();
+            mReader.skipValue();
+        }
+
+        mReader.endObject();
+    }
+
+    /**
+     * Same escaping as Gson's JsonWriter (html safe mode is off), encoded as UTF-8
+     */
+    private void writeString(String value) {
+        write('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    writeAscii("\\\"");
+                    break;
+                case '\\':
+                    writeAscii("\\\\");
+                    break;
+                case '\t':
+                    writeAscii("\\t");
+                    break;
+                case '\b':
+                    writeAscii("\\b");
+                    break;
+                case '\n':
+                    writeAscii("\\n");
+                    break;
+                case '\r':
+                    writeAscii("\\r");
+                    break;
+                case '\f':
+                    writeAscii("\\f");
+                    break;
+                case '\u2028':
+                    writeAscii("\\u2028");
+                    break;
+                case '\u2029':
+                    writeAscii("\\u2029");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writeAscii(String.format("\\u%04x", (int) c));
+                    } else if (c < 0x80) {
+                        write(c);
+                    } else if (c < 0x800) {
+                        write(0xc0 | c >> 6);
+                        write(0x80 | c & 0x3f);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        write(0xf0 | codePoint >> 18);
+                        write(0x80 | codePoint >> 12 & 0x3f);
+                        write(0x80 | codePoint >> 6 & 0x3f);
+                        write(0x80 | codePoint & 0x3f);
+                    } else if (Character.isSurrogate(c)) {
+                        write('?'); // same as String.getBytes()
+                    } else {
+                        write(0xe0 | c >> 12);
+                        write(0x80 | c >> 6 & 0x3f);
+                        write(0x80 | c & 0x3f);
+                    }
+                    break;
+            }
+        }
+
+        write('"');
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    private void write(int b) {
+        if (mLength == mOut.length) {
+            mOut = Arrays.copyOf(mOut, mOut.length * 2);
+        }
+
+        mOut[mLength++] = (byte) b;
+    }
+}
@@ -3,6 +3,7 @@ package com.liskovsoft.smartyoutubetv.interceptors.ads;
 import android.content.Context;
 import android.webkit.WebResourceResponse;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
+import com.liskovsoft.smartyoutubetv.interceptors.UrlRules;
 import com.liskovsoft.smartyoutubetv.misc.SmartUtils;
 
 public class VideoInfoAdInterceptor extends RequestInterceptor {
@@ -14,6 +15,11 @@ public class VideoInfoAdInterceptor extends RequestInterceptor {
         mContext = context;
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        return new UrlRules().addSubstring(VIDEO_INFO_URL.toString());
+    }
+
     @Override
     public boolean test(String url) {
         if (url == null) {
@@ -8,10 +8,6 @@ import com.liskovsoft.smartyoutubetv.CommonApplication;
 import com.liskovsoft.smartyoutubetv.misc.SmartUtils;
 import com.liskovsoft.smartyoutubetv.prefs.SmartPreferences;
 
-import org.apache.commons.lang3.RegExUtils;
-import org.apache.commons.lang3.StringUtils;
-
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,6 +17,7 @@ public class ContentFilter {
     private static final String TAG = ContentFilter.class.getSimpleName();
     private final Map<String, String> mSecondReplacement = new HashMap<>();
     private final Map<String, String> mSecondReplacementRegExp = new HashMap<>();
+    private final MultiPatternReplacer mSecondReplacer;
 
     public ContentFilter(Context context) {
         SmartPreferences prefs = CommonApplication.getPreferences();
@@ -62,6 +59,15 @@ public class ContentFilter {
             mSecondReplacementRegExp.put("this\\.environment\\.supportsVoiceSearch", "true");
             mSecondReplacementRegExp.put("b\\.supportsVoiceSearch", "true");
         }
+
+        mSecondReplacer = new MultiPatternReplacer(mSecondReplacement, mSecondReplacementRegExp);
+    }
+
+    /**
+     * Changes when the active replacement rules have changed
+     */
+    public int getRulesHash() {
+        return 31 * mSecondReplacement.hashCode() + mSecondReplacementRegExp.hashCode();
     }
 
     public InputStream filterFirstScript(InputStream result) {
@@ -72,7 +78,7 @@ public class ContentFilter {
     public InputStream filterSecondScript(InputStream result) {
         Log.d(TAG, "Filtering second script...");
 
-        return doReplacement(result, mSecondReplacement, mSecondReplacementRegExp);
+        return mSecondReplacer.wrap(result);
     }
 
     public InputStream filterLastScript(InputStream result) {
@@ -84,38 +90,4 @@ public class ContentFilter {
         Log.d(TAG, "Filtering styles...");
         return result;
     }
-
-    private InputStream doReplacement(InputStream inputStream, Map<String, String> pairs, Map<String, String> pairsRegExp) {
-        String data = null;
-
-        if (pairs != null && !pairs.isEmpty()) {
-            if (data == null) {
-                data = Helpers.toString(inputStream);
-            }
-
-            for (String key : pairs.keySet()) {
-                data = StringUtils.replace(data, key, pairs.get(key));
-            }
-        }
-
-        if (pairsRegExp != null && !pairsRegExp.isEmpty()) {
-            if (data == null) {
-                data = Helpers.toString(inputStream);
-            }
-
-            for (String key : pairsRegExp.keySet()) {
-                data = RegExUtils.replaceAll(data, key, pairsRegExp.get(key));
-            }
-        }
-
-        InputStream result;
-
-        if (data != null) {
-            result = new ByteArrayInputStream(data.getBytes());
-        } else {
-            result = inputStream;
-        }
-
-        return result;
-    }
 }
@@ -0,0 +1,110 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads.contentfilter;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles literal and regex replacement rules into the single alternation pattern.<br/>
+ * Compile once, then wrap any number of streams with {@link #wrap(InputStream)}.<br/>
+ * NOTE: all rules are applied in one pass, so the rule's output isn't visible to the other rules.
+ */
+public class MultiPatternReplacer {
+    private final Pattern mPattern;
+    private final List<Rule> mRules = new ArrayList<>();
+
+    public MultiPatternReplacer(Map<String, String> pairs, Map<String, String> pairsRegExp) {
+        StringBuilder alternation = new StringBuilder();
+        int group = 1;
+
+        if (pairs != null) {
+            for (Map.Entry<String, String> pair : pairs.entrySet()) {
+                group = addRule(alternation, group, Pattern.quote(pair.getKey()), Matcher.quoteReplacement(pair.getValue()));
+            }
+        }
+
+        if (pairsRegExp != null) {
+            for (Map.Entry<String, String> pair : pairsRegExp.entrySet()) {
+                group = addRule(alternation, group, pair.getKey(), pair.getValue());
+            }
+        }
+
+        mPattern = mRules.isEmpty() ? null : Pattern.compile(alternation.toString());
+    }
+
+    private int addRule(StringBuilder alternation, int group, String regex, String replacement) {
+        if (alternation.length() > 0) {
+            alternation.append('|');
+        }
+
+        alternation.append('(').append(regex).append(')');
+        mRules.add(new Rule(group, replacement));
+
+        // rule's own groups follow its enclosing group
+        return group + 1 + Pattern.compile(regex).matcher("").groupCount();
+    }
+
+    public boolean isEmpty() {
+        return mPattern == null;
+    }
+
+    public InputStream wrap(InputStream in) {
+        if (isEmpty()) {
+            return in;
+        }
+
+        return new MultiReplacingInputStream(in, this);
+    }
+
+    Pattern getPattern() {
+        return mPattern;
+    }
+
+    /**
+     * Append replacement of the current match, <code>$n</code> refers to the n-th group of the matched rule
+     */
+    void appendReplacement(Matcher matcher, StringBuilder out) {
+        Rule rule = findRule(matcher);
+        String replacement = rule.mReplacement;
+
+        for (int i = 0; i < replacement.length(); i++) {
+            char c = replacement.charAt(i);
+
+            if (c == '\\' && i + 1 < replacement.length()) {
+                out.append(replacement.charAt(++i));
+            } else if (c == '$' && i + 1 < replacement.length() && Character.isDigit(replacement.charAt(i + 1))) {
+                int ref = replacement.charAt(++i) - '0';
+                String value = matcher.group(rule.mGroup + ref);
+
+                if (value != null) {
+                    out.append(value);
+                }
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private Rule findRule(Matcher matcher) {
+        for (Rule rule : mRules) {
+            if (matcher.start(rule.mGroup) != -1) {
+                return rule;
+            }
+        }
+
+        throw new IllegalStateException("No rule for the match: " + matcher.group());
+    }
+
+    private static final class Rule {
+        private final int mGroup;
+        private final String mReplacement;
+
+        Rule(int group, String replacement) {
+            mGroup = group;
+            mReplacement = replacement;
+        }
+    }
+}
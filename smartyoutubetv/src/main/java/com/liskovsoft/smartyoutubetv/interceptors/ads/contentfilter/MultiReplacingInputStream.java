@@ -0,0 +1,147 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads.contentfilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+
+/**
+ * Applies all rules of {@link MultiPatternReplacer} in one pass over the bounded window.<br/>
+ * Replaced content is emitted chunk by chunk, so the whole script is never held in memory.<br/>
+ * NOTE: single match shouldn't be longer than {@link #OVERLAP_SIZE} chars. Input is assumed to be UTF-8 encoded.
+ */
+public class MultiReplacingInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int OVERLAP_SIZE = 4 * 1024;
+    private final Reader mReader;
+    private final MultiPatternReplacer mReplacer;
+    private final Matcher mMatcher;
+    private final int mChunkSize;
+    private final int mOverlapSize;
+    private final char[] mWindow;
+    private final StringBuilder mOut = new StringBuilder();
+    private int mWindowLength;
+    private boolean mEndOfInput;
+    private byte[] mPending = new byte[0];
+    private int mPendingPos;
+
+    public MultiReplacingInputStream(InputStream in, MultiPatternReplacer replacer) {
+        this(in, replacer, CHUNK_SIZE, OVERLAP_SIZE);
+    }
+
+    MultiReplacingInputStream(InputStream in, MultiPatternReplacer replacer, int chunkSize, int overlapSize) {
+        mReader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        mReplacer = replacer;
+        mMatcher = replacer.getPattern().matcher("");
+        mChunkSize = chunkSize;
+        mOverlapSize = overlapSize;
+        mWindow = new char[chunkSize + overlapSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensurePending()) {
+            return -1;
+        }
+
+        return mPending[mPendingPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+
+        if (!ensurePending()) {
+            return -1;
+        }
+
+        int count = Math.min(len, mPending.length - mPendingPos);
+        System.arraycopy(mPending, mPendingPos, b, off, count);
+        mPendingPos += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return mPending.length - mPendingPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    private boolean ensurePending() throws IOException {
+        while (mPendingPos == mPending.length) {
+            if (mEndOfInput && mWindowLength == 0) {
+                return false;
+            }
+
+            processWindow();
+        }
+
+        return true;
+    }
+
+    /**
+     * Fill the window, replace matches that start before the overlap zone, keep the rest for the next round
+     */
+    private void processWindow() throws IOException {
+        while (!mEndOfInput && mWindowLength < mWindow.length) {
+            int count = mReader.read(mWindow, mWindowLength, mWindow.length - mWindowLength);
+
+            if (count == -1) {
+                mEndOfInput = true;
+            } else {
+                mWindowLength += count;
+            }
+        }
+
+        int limit = mEndOfInput ? mWindowLength : mWindowLength - mOverlapSize;
+        int pos = 0;
+
+        mMatcher.reset(CharBuffer.wrap(mWindow, 0, mWindowLength));
+
+        while (pos < limit && mMatcher.find(pos) && mMatcher.start() < limit) {
+            mOut.append(mWindow, pos, mMatcher.start() - pos);
+            mReplacer.appendReplacement(mMatcher, mOut);
+
+            if (mMatcher.end() == mMatcher.start()) { // empty match
+                if (mMatcher.end() < mWindowLength) {
+                    mOut.append(mWindow[mMatcher.end()]);
+                }
+                pos = mMatcher.end() + 1;
+            } else {
+                pos = mMatcher.end();
+            }
+        }
+
+        if (pos < limit) {
+            // don't split surrogate pair
+            if (!mEndOfInput && Character.isHighSurrogate(mWindow[limit - 1])) {
+                limit--;
+            }
+
+            mOut.append(mWindow, pos, limit - pos);
+            pos = limit;
+        }
+
+        pos = Math.min(pos, mWindowLength);
+        System.arraycopy(mWindow, pos, mWindow, 0, mWindowLength - pos);
+        mWindowLength -= pos;
+
+        mPending = mOut.toString().getBytes(StandardCharsets.UTF_8);
+        mPendingPos = 0;
+        mOut.setLength(0);
+    }
+}
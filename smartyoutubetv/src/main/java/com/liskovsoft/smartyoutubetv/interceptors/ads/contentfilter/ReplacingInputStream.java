@@ -7,27 +7,26 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 /**
- * Simple FilterInputStream that can replace occurrances of bytes with something else.
+ * Simple FilterInputStream that can replace occurrances of bytes with something else.<br/>
+ * Input is read in bulk into the internal buffer, matching is done with precomputed KMP table, so no allocations per match.
  */
 public class ReplacingInputStream extends FilterInputStream {
-
-    // while matching, this is where the bytes go.
-    int[] buf = null;
-    int matchedIndex = 0;
-    int unbufferIndex = 0;
-    int replacedIndex = 0;
+    private static final int BUFFER_SIZE = 8 * 1024;
 
     private final byte[] pattern;
     private final byte[] replacement;
-    private State state = State.NOT_MATCHED;
-
-    // simple state machine for keeping track of what we are doing
-    private enum State {
-        NOT_MATCHED,
-        MATCHING,
-        REPLACING,
-        UNBUFFER
-    }
+    // KMP failure table: fail[i] is the longest proper border of pattern[0..i)
+    private final int[] fail;
+    private final byte[] inBuf = new byte[BUFFER_SIZE];
+    private final byte[] singleByte = new byte[1];
+    private int inPos = 0;
+    private int inLen = 0;
+    private boolean endOfInput = false;
+    // while matching, matched bytes are pattern[0..matchedIndex), so no separate buffer is needed
+    private int matchedIndex = 0;
+    private int replacedIndex = 0;
+    private int unbufferIndex = 0;
+    private int unbufferLength = 0;
 
     /**
      * Replace occurances of pattern in the input. Note: input is assumed to be UTF-8 encoded. If not the case use byte[] based pattern and replacement.
@@ -49,15 +48,38 @@ public class ReplacingInputStream extends FilterInputStream {
      */
     public ReplacingInputStream(InputStream in, byte[] pattern, byte[] replacement) {
         super(in);
+
+        if (pattern == null || pattern.length == 0) {
+            throw new IllegalArgumentException("Pattern is empty");
+        }
+
         this.pattern = pattern;
-        this.replacement = replacement;
-        // we will never match more than the pattern length
-        buf = new int[pattern.length];
+        this.replacement = replacement == null ? new byte[0] : replacement;
+        this.replacedIndex = this.replacement.length;
+        this.fail = buildFailTable(pattern);
+    }
+
+    private static int[] buildFailTable(byte[] pattern) {
+        int[] result = new int[pattern.length + 1];
+        int border = 0;
+
+        for (int i = 1; i < pattern.length; i++) {
+            while (border > 0 && pattern[i] != pattern[border]) {
+                border = result[border];
+            }
+
+            if (pattern[i] == pattern[border]) {
+                border++;
+            }
+
+            result[i + 1] = border;
+        }
+
+        return result;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        // copy of parent logic; we need to call our own read() instead of super.read(), which delegates instead of calling our read
         if (b == null) {
             throw new NullPointerException();
         } else if (off < 0 || len < 0 || len > b.length - off) {
@@ -66,25 +88,116 @@ public class ReplacingInputStream extends FilterInputStream {
             return 0;
         }
 
-        int c = read();
-        if (c == -1) {
-            return -1;
-        }
-        b[off] = (byte) c;
+        int count = 0;
+
+        while (count < len) {
+            if (replacedIndex < replacement.length) {
+                // we've fully matched the pattern and are returning bytes from the replacement
+                int size = Math.min(len - count, replacement.length - replacedIndex);
+                System.arraycopy(replacement, replacedIndex, b, off + count, size);
+                replacedIndex += size;
+                count += size;
+                continue;
+            }
+
+            if (unbufferIndex < unbufferLength) {
+                // we partially matched the pattern before encountering a non matching byte
+                int size = Math.min(len - count, unbufferLength - unbufferIndex);
+                System.arraycopy(pattern, unbufferIndex, b, off + count, size);
+                unbufferIndex += size;
+                count += size;
+                continue;
+            }
+
+            if (inPos == inLen) {
+                if (count > 0 && in.available() <= 0) {
+                    // don't block when there is something to return
+                    break;
+                }
+
+                if (!fill()) {
+                    if (matchedIndex > 0) {
+                        // input ended in the middle of the match
+                        unbuffer(matchedIndex);
+                        matchedIndex = 0;
+                        continue;
+                    }
 
-        int i = 1;
-        try {
-            for (; i < len; i++) {
-                c = read();
-                if (c == -1) {
                     break;
                 }
-                b[off + i] = (byte) c;
             }
-        } catch (IOException ee) {
+
+            if (matchedIndex == 0) {
+                // fast path: copy everything up to the first byte of the pattern
+                byte first = pattern[0];
+                int start = inPos;
+                int limit = inPos + Math.min(inLen - inPos, len - count);
+                int i = start;
+
+                while (i < limit && inBuf[i] != first) {
+                    i++;
+                }
+
+                System.arraycopy(inBuf, start, b, off + count, i - start);
+                count += i - start;
+                inPos = i;
+
+                if (i == limit) {
+                    continue;
+                }
+
+                inPos++;
+                matchedIndex = 1;
+            } else {
+                byte next = inBuf[inPos];
+
+                if (pattern[matchedIndex] == next) {
+                    inPos++;
+                    matchedIndex++;
+                } else {
+                    // mismatch -> emit bytes that can't be a part of the match and retry the same byte
+                    int border = fail[matchedIndex];
+                    unbuffer(matchedIndex - border);
+                    matchedIndex = border;
+                    continue;
+                }
+            }
+
+            if (matchedIndex == pattern.length) {
+                // we've found a full match!
+                matchedIndex = 0;
+                replacedIndex = 0;
+            }
+        }
+
+        return count == 0 ? -1 : count;
+    }
+
+    private void unbuffer(int length) {
+        unbufferIndex = 0;
+        unbufferLength = length;
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+
+        int size;
+
+        do {
+            size = in.read(inBuf, 0, inBuf.length);
+        } while (size == 0);
+
+        if (size == -1) {
+            endOfInput = true;
+            return false;
         }
-        return i;
 
+        inPos = 0;
+        inLen = size;
+
+        return true;
     }
 
     @Override
@@ -95,83 +208,46 @@ public class ReplacingInputStream extends FilterInputStream {
 
     @Override
     public int read() throws IOException {
-        // use a simple state machine to figure out what we are doing
-        int next;
-        switch (state) {
-            case NOT_MATCHED:
-                // we are not currently matching, replacing, or unbuffering
-                next = super.read();
-                if (pattern[0] == next) {
-                    // clear whatever was there
-                    buf = new int[pattern.length]; // clear whatever was there
-                    // make sure we start at 0
-                    matchedIndex = 0;
-
-                    buf[matchedIndex++] = next;
-                    if (pattern.length == 1) {
-                        // edgecase when the pattern length is 1 we go straight to replacing
-                        state = State.REPLACING;
-                        // reset replace counter
-                        replacedIndex = 0;
-                    } else {
-                        // pattern of length 1
-                        state = State.MATCHING;
-                    }
-                    // recurse to continue matching
-                    return read();
-                } else {
-                    return next;
-                }
-            case MATCHING:
-                // the previous bytes matched part of the pattern
-                next = super.read();
-                if (pattern[matchedIndex] == next) {
-                    buf[matchedIndex++] = next;
-                    if (matchedIndex == pattern.length) {
-                        // we've found a full match!
-                        if (replacement == null || replacement.length == 0) {
-                            // the replacement is empty, go straight to NOT_MATCHED
-                            state = State.NOT_MATCHED;
-                            matchedIndex = 0;
-                        } else {
-                            // start replacing
-                            state = State.REPLACING;
-                            replacedIndex = 0;
-                        }
-                    }
-                } else {
-                    // mismatch -> unbuffer
-                    buf[matchedIndex++] = next;
-                    state = State.UNBUFFER;
-                    unbufferIndex = 0;
-                }
-                return read();
-            case REPLACING:
-                // we've fully matched the pattern and are returning bytes from the replacement
-                next = replacement[replacedIndex++];
-                if (replacedIndex == replacement.length) {
-                    state = State.NOT_MATCHED;
-                    replacedIndex = 0;
-                }
-                return next;
-            case UNBUFFER:
-                // we partially matched the pattern before encountering a non matching byte
-                // we need to serve up the buffered bytes before we go back to NOT_MATCHED
-                next = buf[unbufferIndex++];
-                if (unbufferIndex == matchedIndex) {
-                    state = State.NOT_MATCHED;
-                    matchedIndex = 0;
-                }
-                return next;
+        int size = read(singleByte, 0, 1);
+        return size == -1 ? -1 : singleByte[0] & 0xff;
+    }
 
-            default:
-                throw new IllegalStateException("no such state " + state);
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
         }
+
+        // skip replaced content instead of the original one
+        byte[] skipBuf = new byte[(int) Math.min(n, BUFFER_SIZE)];
+        long remaining = n;
+
+        while (remaining > 0) {
+            int size = read(skipBuf, 0, (int) Math.min(remaining, skipBuf.length));
+
+            if (size == -1) {
+                break;
+            }
+
+            remaining -= size;
+        }
+
+        return n - remaining;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (replacement.length - replacedIndex) + (unbufferLength - unbufferIndex);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
     }
 
     @Override
     public String toString() {
-        return state.name() + " " + matchedIndex + " " + replacedIndex + " " + unbufferIndex;
+        return matchedIndex + " " + replacedIndex + " " + unbufferIndex;
     }
 
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.liskovsoft.smartyoutubetv.interceptors.scripts;
 import android.content.Context;
 import android.webkit.WebResourceResponse;
 import com.liskovsoft.sharedutils.helpers.AssetHelper;
+import com.liskovsoft.smartyoutubetv.interceptors.UrlRules;
 import okhttp3.MediaType;
 
 import java.io.InputStream;
@@ -20,6 +21,11 @@ public class CachedLegacyMainScriptManagerInterceptor extends LegacyMainScriptMa
         mLocalizedTvAssetName = String.format("files/tv/tv_%s.html", lang);
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        return super.getUrlRules().addSuffix("/tv");
+    }
+
     @Override
     public boolean test(String url) {
         if (url.endsWith("/tv")) {
@@ -3,6 +3,7 @@ package com.liskovsoft.smartyoutubetv.interceptors.scripts;
 import android.content.Context;
 
 import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv.interceptors.UrlRules;
 
 import java.util.regex.Pattern;
 
@@ -13,11 +14,18 @@ public class LegacyMainScriptManagerInterceptor extends MainScriptManagerInterce
     private static final Pattern[] BASE_SCRIPT_REGEX = {Pattern.compile("youtube.com/s/_/kabuki_legacy/_/js/.*/m=base$")};
     private static final Pattern[] MAIN_SCRIPT_REGEX = {Pattern.compile("youtube.com/s/_/kabuki_legacy/_/js/.*/m=main$")};
     private static final Pattern[] MAIN_STYLE_REGEX = {Pattern.compile("youtube.com/s/_/kabuki_legacy/_/ss/.*")};
+    private static final String LEGACY_PATH = "/s/_/kabuki_legacy/_/";
 
     public LegacyMainScriptManagerInterceptor(Context context) {
         super(context);
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        // regex are checked only for the legacy path
+        return super.getUrlRules().addPathPrefix(LEGACY_PATH);
+    }
+
     @Override
     protected boolean isBaseScript(String url) {
         return super.isBaseScript(url) || Helpers.matchAll(url, BASE_SCRIPT_REGEX);
@@ -2,6 +2,7 @@ package com.liskovsoft.smartyoutubetv.interceptors.scripts;
 
 import android.content.Context;
 import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv.interceptors.UrlRules;
 
 /**
  *  1) live.js<br/>
@@ -19,6 +20,15 @@ public class MainScriptManagerInterceptor extends ScriptManagerInterceptor {
         super(context);
     }
 
+    @Override
+    public UrlRules getUrlRules() {
+        return new UrlRules()
+                .addSuffix(BASE_SCRIPT_NAME)
+                .addSuffix(MAIN_SCRIPT_NAME)
+                .addSuffix(PLAYER_SCRIPT_NAME)
+                .addSuffix(MAIN_STYLE_NAME);
+    }
+
     @Override
     protected boolean isBaseScript(String url) {
         return Helpers.endsWith(url, BASE_SCRIPT_NAME);
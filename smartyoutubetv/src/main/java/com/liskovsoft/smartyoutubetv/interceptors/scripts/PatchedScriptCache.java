@@ -0,0 +1,367 @@
+package com.liskovsoft.smartyoutubetv.interceptors.scripts;
+
+import android.content.Context;
+import com.jakewharton.disklrucache.DiskLruCache;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.BuildConfig;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk cache of the final patched scripts (after filters and injected scripts).<br/>
+ * Cached file is served directly to the WebView, upstream script is checked in background afterwards.
+ */
+public class PatchedScriptCache {
+    private static final String TAG = PatchedScriptCache.class.getSimpleName();
+    private static final String CACHE_DIR = "PatchedScripts";
+    private static final long MAX_SIZE = 20 * 1024 * 1024;
+    private static final int CONTENT_INDEX = 0;
+    private static final int SOURCE_HASH_INDEX = 1;
+    private static PatchedScriptCache sInstance;
+    private final Context mContext;
+    private final DiskLruCache mCache;
+    private final Executor mExecutor = Executors.newSingleThreadExecutor();
+    private final Set<String> mRevalidated = Collections.synchronizedSet(new HashSet<>());
+
+    public interface Source {
+        InputStream open();
+    }
+
+    public interface Patcher {
+        InputStream patch(InputStream source);
+    }
+
+    public static synchronized PatchedScriptCache instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PatchedScriptCache(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private PatchedScriptCache(Context context) {
+        mContext = context;
+        mCache = openCache(context);
+    }
+
+    private static DiskLruCache openCache(Context context) {
+        try {
+            // Don't place cache in the app's cache dir. It could be deleted any time by cache cleaner.
+            File dir = new File(context.getFilesDir(), CACHE_DIR);
+            return DiskLruCache.open(dir, BuildConfig.VERSION_CODE, 2, MAX_SIZE);
+        } catch (IOException e) {
+            Log.e(TAG, e);
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * @param url script url, contains version segment
+     * @param variant differences in patching for the same url
+     * @param rulesHash hash of the filter rules and injected assets
+     */
+    public String createKey(String url, String variant, int rulesHash) {
+        int queryStart = url.indexOf('?');
+        String path = queryStart == -1 ? url : url.substring(0, queryStart);
+        String source = String.format("%s|%s|%s|%s", path, variant, rulesHash, BuildConfig.TIMESTAMP);
+        return toHex(md5(source.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return patched script or null if not cached
+     */
+    public InputStream get(String key) {
+        if (mCache == null) {
+            return null;
+        }
+
+        try {
+            DiskLruCache.Snapshot snapshot = mCache.get(key);
+
+            if (snapshot != null) {
+                Log.d(TAG, "Serving patched script from cache: " + key);
+                return snapshot.getInputStream(CONTENT_INDEX);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Patch the source and save result to the cache while it's being read
+     */
+    public InputStream put(String key, InputStream source, Patcher patcher) {
+        MessageDigest digest = createDigest();
+
+        if (mCache == null || digest == null) {
+            return patcher.patch(source);
+        }
+
+        DiskLruCache.Editor editor = null;
+
+        try {
+            editor = mCache.edit(key);
+        } catch (IOException e) {
+            Log.e(TAG, e);
+        }
+
+        if (editor == null) { // concurrent edit
+            return patcher.patch(source);
+        }
+
+        InputStream patched = patcher.patch(new DigestInputStream(source, digest));
+
+        return new CachingInputStream(patched, editor, digest);
+    }
+
+    /**
+     * Check upstream script in background once per session. Update cache if the script content has changed.
+     */
+    public void revalidate(String key, Source source, Patcher patcher) {
+        if (mCache == null || !mRevalidated.add(key)) {
+            return;
+        }
+
+        mExecutor.execute(() -> revalidateReal(key, source, patcher));
+    }
+
+    private void revalidateReal(String key, Source source, Patcher patcher) {
+        String cachedHash = getSourceHash(key);
+        InputStream content = source.open();
+
+        if (content == null) {
+            return;
+        }
+
+        File tmpFile = new File(mContext.getCacheDir(), key + ".tmp");
+
+        try {
+            MessageDigest digest = createDigest();
+
+            if (digest == null) {
+                return;
+            }
+
+            copy(new DigestInputStream(content, digest), new FileOutputStream(tmpFile));
+            String hash = toHex(digest.digest());
+
+            if (hash.equals(cachedHash)) {
+                Log.d(TAG, "Patched script is up to date: " + key);
+                return;
+            }
+
+            Log.d(TAG, "Upstream script has changed. Updating cache: " + key);
+
+            InputStream updated = put(key, new FileInputStream(tmpFile), patcher);
+            drain(updated);
+        } catch (IOException e) {
+            Log.e(TAG, e);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private String getSourceHash(String key) {
+        DiskLruCache.Snapshot snapshot = null;
+
+        try {
+            snapshot = mCache.get(key);
+
+            if (snapshot != null) {
+                return snapshot.getString(SOURCE_HASH_INDEX);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, e);
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+
+        return null;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8 * 1024];
+        int size;
+
+        try {
+            while ((size = in.read(buffer)) != -1) {
+                out.write(buffer, 0, size);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8 * 1024];
+
+        try {
+            while (in.read(buffer) != -1) {
+                // content is written to the cache while reading
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            Log.e(TAG, e);
+        }
+
+        return null;
+    }
+
+    private static byte[] md5(byte[] data) {
+        MessageDigest digest = createDigest();
+        return digest == null ? new byte[0] : digest.digest(data);
+    }
+
+    private static String toHex(byte[] data) {
+        StringBuilder result = new StringBuilder();
+
+        for (byte b : data) {
+            result.append(String.format("%02x", b));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Copies content into the cache entry while being read. Entry is committed only when the content has been read fully.
+     */
+    private static class CachingInputStream extends FilterInputStream {
+        private final DiskLruCache.Editor mEditor;
+        private final MessageDigest mSourceDigest;
+        private OutputStream mOut;
+        private boolean mDone;
+
+        CachingInputStream(InputStream in, DiskLruCache.Editor editor, MessageDigest sourceDigest) {
+            super(in);
+            mEditor = editor;
+            mSourceDigest = sourceDigest;
+
+            try {
+                mOut = editor.newOutputStream(CONTENT_INDEX);
+            } catch (IOException e) {
+                Log.e(TAG, e);
+                abort();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+
+            if (result == -1) {
+                commit();
+            } else {
+                write(result);
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int size = super.read(b, off, len);
+
+            if (size == -1) {
+                commit();
+            } else {
+                write(b, off, size);
+            }
+
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            abort(); // no-op when already committed
+            super.close();
+        }
+
+        private void write(int b) {
+            if (mDone) {
+                return;
+            }
+
+            try {
+                mOut.write(b);
+            } catch (IOException e) {
+                Log.e(TAG, e);
+                abort();
+            }
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (mDone) {
+                return;
+            }
+
+            try {
+                mOut.write(b, off, len);
+            } catch (IOException e) {
+                Log.e(TAG, e);
+                abort();
+            }
+        }
+
+        private void commit() {
+            if (mDone) {
+                return;
+            }
+
+            mDone = true;
+
+            try {
+                mOut.close();
+                mEditor.set(SOURCE_HASH_INDEX, toHex(mSourceDigest.digest()));
+                mEditor.commit();
+            } catch (IOException e) {
+                Log.e(TAG, e);
+            }
+        }
+
+        private void abort() {
+            if (mDone) {
+                return;
+            }
+
+            mDone = true;
+
+            try {
+                if (mOut != null) {
+                    mOut.close();
+                }
+                mEditor.abort();
+            } catch (IOException e) {
+                Log.e(TAG, e);
+            }
+        }
+    }
+}
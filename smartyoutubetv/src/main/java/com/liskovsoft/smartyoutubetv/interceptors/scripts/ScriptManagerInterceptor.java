@@ -10,7 +10,6 @@ import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
 import com.liskovsoft.smartyoutubetv.interceptors.ads.contentfilter.ContentFilter;
 import com.liskovsoft.smartyoutubetv.webscripts.CachedMainScriptManager;
-import com.liskovsoft.smartyoutubetv.webscripts.ScriptManager;
 
 import java.io.InputStream;
 
@@ -20,8 +19,9 @@ import okhttp3.ResponseBody;
 
 public abstract class ScriptManagerInterceptor extends RequestInterceptor {
     private static final String TAG = ScriptManagerInterceptor.class.getSimpleName();
-    private final ScriptManager mManager;
+    private final CachedMainScriptManager mManager;
     private final ContentFilter mFilter;
+    private final PatchedScriptCache mCache;
     private boolean mFirstScriptDone;
 
     public ScriptManagerInterceptor(Context context) {
@@ -29,6 +29,7 @@ public abstract class ScriptManagerInterceptor extends RequestInterceptor {
 
         mManager = new CachedMainScriptManager(context);
         mFilter = new ContentFilter(context);
+        mCache = PatchedScriptCache.instance(context);
     }
 
     @Override
@@ -54,39 +55,61 @@ public abstract class ScriptManagerInterceptor extends RequestInterceptor {
 
     @Override
     public WebResourceResponse intercept(String url) {
-        InputStream result = getContent(url);
+        MediaType type;
 
-        if (result == null) {
+        if (isBaseScript(url) || isMainScript(url) || isPlayerScript(url)) {
+            type = MediaType.parse("text/javascript");
+        } else if (isStyle(url)) {
+            type = MediaType.parse("text/css");
+        } else {
             return null;
         }
 
-        MediaType type;
+        boolean withInit = isBaseScript(url) || (isPlayerScript(url) && !mFirstScriptDone);
+        String key = mCache.createKey(url, withInit ? "init" : "", getRulesHash());
+        InputStream result = mCache.get(key);
+
+        if (result != null) {
+            mCache.revalidate(key, () -> getContent(url), source -> patch(url, source, withInit));
+        } else {
+            result = getContent(url);
+
+            if (result == null) {
+                return null;
+            }
+
+            result = mCache.put(key, result, source -> patch(url, source, withInit));
+        }
 
         if (isBaseScript(url)) {
-            result = applyInit(result);
             mFirstScriptDone = true;
+        }
+
+        return createResponse(type, result);
+    }
+
+    private InputStream patch(String url, InputStream result, boolean withInit) {
+        if (withInit) {
+            result = applyInit(result);
+        }
+
+        if (isBaseScript(url)) {
             result = mFilter.filterFirstScript(result);
-            type = MediaType.parse("text/javascript");
         } else if (isMainScript(url)) {
             result = mFilter.filterSecondScript(result);
-            type = MediaType.parse("text/javascript");
         } else if (isPlayerScript(url)) {
-            if (!mFirstScriptDone) {
-                result = applyInit(result);
-            }
-
             result = applyLoad(result);
             result = mFilter.filterLastScript(result);
-            type = MediaType.parse("text/javascript");
         } else if (isStyle(url)) {
             result = applyStyles(result);
             result = mFilter.filterStyles(result);
-            type = MediaType.parse("text/css");
-        } else {
-            return null;
         }
 
-        return createResponse(type, result);
+        return result;
+    }
+
+    private int getRulesHash() {
+        return 31 * mFilter.getRulesHash() + mManager.getHash();
     }
 
     @Nullable
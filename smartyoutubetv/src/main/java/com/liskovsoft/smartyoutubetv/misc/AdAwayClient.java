@@ -5,17 +5,32 @@ import android.content.Context;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv.prefs.CommonParams;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class AdAwayClient {
 
     private static final String TAG = AdAwayClient.class.getSimpleName();
+    private static final int HOST_CACHE_SIZE = 64;
 
     /**
      * Couple of ads have been taken from <a href="https://www.reddit.com/r/dropgoogle/comments/5tnjxl/block_youtube_ads_2017_hosts_file/">this post</a>
      */
-    private final String[] mAdList;
+    private final AhoCorasickMatcher mMatcher;
+
+    /**
+     * Automaton state after scheme and host part of the url (or {@link AhoCorasickMatcher#MATCH})
+     */
+    private final Map<String, Integer> mHostStates = new LinkedHashMap<String, Integer>(HOST_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > HOST_CACHE_SIZE;
+        }
+    };
 
     public AdAwayClient(Context context) {
-        mAdList = CommonParams.instance(context).getAdsUrls();
+        String[] adList = CommonParams.instance(context).getAdsUrls();
+        mMatcher = adList == null ? null : new AhoCorasickMatcher(adList);
     }
 
     /**
@@ -26,19 +41,39 @@ public class AdAwayClient {
      * @throws {@link NullPointerException} if param {@code url} is {@code null}
      */
     public boolean isAd(String url) {
-        if (mAdList == null) {
+        if (mMatcher == null) {
             return false;
         }
 
-        for (String subUrl : mAdList) {
-            boolean contains = url.contains(subUrl);
-            if (contains) {
-                Log.d(TAG, "Ads blocked: " + url);
-                return true;
+        int hostEnd = getHostEnd(url);
+        String host = url.substring(0, hostEnd);
+        Integer state;
+
+        synchronized (mHostStates) {
+            state = mHostStates.get(host);
+        }
+
+        if (state == null) {
+            state = mMatcher.scan(AhoCorasickMatcher.ROOT, url, 0, hostEnd);
+
+            synchronized (mHostStates) {
+                mHostStates.put(host, state);
             }
         }
 
-        return false;
+        boolean isAd = state == AhoCorasickMatcher.MATCH || mMatcher.scan(state, url, hostEnd, url.length()) == AhoCorasickMatcher.MATCH;
+
+        if (isAd) {
+            Log.d(TAG, "Ads blocked: " + url);
+        }
+
+        return isAd;
     }
 
+    private static int getHostEnd(String url) {
+        int hostStart = url.indexOf("://");
+        hostStart = hostStart == -1 ? 0 : hostStart + 3;
+        int hostEnd = url.indexOf('/', hostStart);
+        return hostEnd == -1 ? url.length() : hostEnd;
+    }
 }
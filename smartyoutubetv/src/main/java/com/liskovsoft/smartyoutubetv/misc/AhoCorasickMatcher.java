@@ -0,0 +1,235 @@
+package com.liskovsoft.smartyoutubetv.misc;
+
+import java.util.Arrays;
+
+/**
+ * Precompiled multi-pattern substring matcher (Aho-Corasick automaton).<br/>
+ * Matching cost is O(text length) regardless of the number of patterns.<br/>
+ * Automaton is immutable after construction, so it's safe to share between threads.
+ */
+public class AhoCorasickMatcher {
+    public static final int ROOT = 0;
+    public static final int MATCH = -1;
+    private final int[] mEdgeStart;
+    private final char[] mEdgeChars;
+    private final int[] mEdgeTargets;
+    private final int[] mFail;
+    private final boolean[] mOutput;
+
+    public AhoCorasickMatcher(String[] patterns) {
+        String[] sorted = patterns.clone();
+        Arrays.sort(sorted, AhoCorasickMatcher::compareNullsFirst);
+
+        // temporary trie: children are linked lists in sorted order
+        IntList lastChild = new IntList();
+        IntList firstChild = new IntList();
+        IntList nextSibling = new IntList();
+        CharList nodeChars = new CharList();
+        boolean[] terminal = new boolean[16];
+
+        addNode(firstChild, lastChild, nextSibling, nodeChars, (char) 0);
+
+        for (String pattern : sorted) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+
+            int node = ROOT;
+
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int child = lastChild.get(node);
+
+                // input is sorted, so existing child could only be the last one
+                if (child == -1 || nodeChars.get(child) != c) {
+                    int newChild = addNode(firstChild, lastChild, nextSibling, nodeChars, c);
+
+                    if (child == -1) {
+                        firstChild.set(node, newChild);
+                    } else {
+                        nextSibling.set(child, newChild);
+                    }
+
+                    lastChild.set(node, newChild);
+                    child = newChild;
+                }
+
+                node = child;
+            }
+
+            if (node >= terminal.length) {
+                terminal = Arrays.copyOf(terminal, Math.max(node + 1, terminal.length * 2));
+            }
+
+            terminal[node] = true;
+        }
+
+        int size = nodeChars.size();
+
+        // flatten edges (sorted by char for binary search)
+        mEdgeStart = new int[size + 1];
+        mEdgeChars = new char[size - 1];
+        mEdgeTargets = new int[size - 1];
+        int edge = 0;
+
+        for (int node = 0; node < size; node++) {
+            mEdgeStart[node] = edge;
+
+            for (int child = firstChild.get(node); child != -1; child = nextSibling.get(child)) {
+                mEdgeChars[edge] = nodeChars.get(child);
+                mEdgeTargets[edge] = child;
+                edge++;
+            }
+        }
+
+        mEdgeStart[size] = edge;
+
+        // failure links, breadth-first
+        mFail = new int[size];
+        mOutput = new boolean[size];
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+
+        for (int e = mEdgeStart[ROOT]; e < mEdgeStart[ROOT + 1]; e++) {
+            int child = mEdgeTargets[e];
+            mFail[child] = ROOT;
+            mOutput[child] = child < terminal.length && terminal[child];
+            queue[tail++] = child;
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+
+            for (int e = mEdgeStart[node]; e < mEdgeStart[node + 1]; e++) {
+                int child = mEdgeTargets[e];
+                char c = mEdgeChars[e];
+                int fail = mFail[node];
+                int target;
+
+                while ((target = getEdge(fail, c)) == -1 && fail != ROOT) {
+                    fail = mFail[fail];
+                }
+
+                mFail[child] = target == -1 ? ROOT : target;
+                mOutput[child] = (child < terminal.length && terminal[child]) || mOutput[mFail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Null patterns are skipped later, so they just go first
+     */
+    private static int compareNullsFirst(String left, String right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : -1) : 1;
+        }
+
+        return left.compareTo(right);
+    }
+
+    private static int addNode(IntList firstChild, IntList lastChild, IntList nextSibling, CharList nodeChars, char c) {
+        firstChild.add(-1);
+        lastChild.add(-1);
+        nextSibling.add(-1);
+        nodeChars.add(c);
+        return nodeChars.size() - 1;
+    }
+
+    private int getEdge(int node, char c) {
+        int low = mEdgeStart[node];
+        int high = mEdgeStart[node + 1] - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = mEdgeChars[mid];
+
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mEdgeTargets[mid];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Continue matching from the given state
+     *
+     * @param state state returned by previous call or {@link #ROOT}
+     * @return {@link #MATCH} if any pattern found, resulting state otherwise
+     */
+    public int scan(int state, CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int next;
+
+            while ((next = getEdge(state, c)) == -1 && state != ROOT) {
+                state = mFail[state];
+            }
+
+            state = next == -1 ? ROOT : next;
+
+            if (mOutput[state]) {
+                return MATCH;
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * @return {@code true} if text contains any of the patterns
+     */
+    public boolean matches(CharSequence text) {
+        return scan(ROOT, text, 0, text.length()) == MATCH;
+    }
+
+    public int getStateCount() {
+        return mFail.length;
+    }
+
+    private static final class IntList {
+        private int[] mData = new int[16];
+        private int mSize;
+
+        void add(int value) {
+            if (mSize == mData.length) {
+                mData = Arrays.copyOf(mData, mSize * 2);
+            }
+            mData[mSize++] = value;
+        }
+
+        int get(int index) {
+            return mData[index];
+        }
+
+        void set(int index, int value) {
+            mData[index] = value;
+        }
+    }
+
+    private static final class CharList {
+        private char[] mData = new char[16];
+        private int mSize;
+
+        void add(char value) {
+            if (mSize == mData.length) {
+                mData = Arrays.copyOf(mData, mSize * 2);
+            }
+            mData[mSize++] = value;
+        }
+
+        char get(int index) {
+            return mData[index];
+        }
+
+        int size() {
+            return mSize;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.liskovsoft.smartyoutubetv.misc.youtubeutils;
+
+import android.content.Context;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv.misc.HeaderManager;
+import com.liskovsoft.smartyoutubetv.misc.OkHttpManager;
+import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyQueryString;
+import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyQueryStringFactory;
+import okhttp3.Headers;
+import okhttp3.Response;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One background queue for the watch history reports (api/stats/playback + api/stats/watchtime).<br/>
+ * Updates of the same video are coalesced, only the last position is sent.<br/>
+ * Failed reports are retried with exponential backoff. Only the failed step is retried, so the playback ping isn't sent twice.<br/>
+ * Pending reports are kept in the small outbox file, so they survive offline periods and app restarts.
+ */
+public class HistoryReportQueue {
+    private static final String TAG = HistoryReportQueue.class.getSimpleName();
+    private static final String OUTBOX_FILE = "history_outbox.txt";
+    private static final String PARAM_VIDEO_ID = "docid";
+    private static final String AUTHORIZATION = "Authorization";
+    private static final int MAX_REPORTS = 50;
+    private static final long COALESCE_DELAY_MS = 2_000;
+    private static final long RETRY_DELAY_MS = 5_000;
+    private static final long MAX_RETRY_DELAY_MS = 10 * 60 * 1000;
+    private static final long MAX_AGE_MS = 24 * 60 * 60 * 1000;
+    private static final char DELIM = '\t';
+    private static final String PLAYBACK_SENT = "1";
+    private static final String PLAYBACK_PENDING = "0";
+    private static HistoryReportQueue sInstance;
+    private final HeaderManager mManager;
+    private final File mOutboxFile;
+    private final ScheduledExecutorService mExecutor;
+    private final Map<String, Report> mReports = new LinkedHashMap<>();
+    private ScheduledFuture<?> mFlushTask;
+    private int mFailures;
+
+    public static synchronized HistoryReportQueue instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new HistoryReportQueue(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private HistoryReportQueue(Context context) {
+        mManager = new HeaderManager(context);
+        mOutboxFile = new File(context.getFilesDir(), OUTBOX_FILE);
+        mExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+        mExecutor.execute(this::load);
+    }
+
+    /**
+     * Replaces pending report of the same video
+     *
+     * @param trackingUrl watchtime url with the position
+     */
+    public void enqueue(String trackingUrl) {
+        String key = getKey(trackingUrl);
+
+        synchronized (mReports) {
+            mReports.remove(key); // move to the end
+            mReports.put(key, new Report(trackingUrl, System.currentTimeMillis()));
+
+            trimReports();
+        }
+
+        mExecutor.execute(this::save);
+        scheduleFlush(COALESCE_DELAY_MS);
+    }
+
+    private synchronized void scheduleFlush(long delayMs) {
+        if (mFlushTask != null) {
+            return; // will be sent with the scheduled flush
+        }
+
+        mFlushTask = mExecutor.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<Map.Entry<String, Report>> reports;
+
+        synchronized (mReports) {
+            removeExpired();
+            reports = new ArrayList<>(mReports.entrySet());
+        }
+
+        boolean failed = false;
+
+        for (Map.Entry<String, Report> entry : reports) {
+            int result = send(entry.getValue());
+
+            if (result == Report.RESULT_RETRY) {
+                failed = true;
+                break; // probably offline, don't send the rest
+            }
+
+            synchronized (mReports) {
+                // newer update could arrive while sending
+                if (mReports.get(entry.getKey()) == entry.getValue()) {
+                    mReports.remove(entry.getKey());
+                }
+            }
+        }
+
+        save();
+        onFlushDone(failed);
+    }
+
+    private synchronized void onFlushDone(boolean failed) {
+        mFlushTask = null;
+
+        boolean hasReports;
+
+        synchronized (mReports) {
+            hasReports = !mReports.isEmpty();
+        }
+
+        if (failed) {
+            mFailures++;
+            long delayMs = Math.min(RETRY_DELAY_MS << Math.min(mFailures - 1, 16), MAX_RETRY_DELAY_MS);
+            Log.d(TAG, String.format("History reports will be retried in %s sec", delayMs / 1000));
+            scheduleFlush(delayMs);
+        } else {
+            mFailures = 0;
+
+            if (hasReports) { // added while sending
+                scheduleFlush(COALESCE_DELAY_MS);
+            }
+        }
+    }
+
+    private int send(Report report) {
+        String authorization = mManager.getHeaderSnapshot().get(AUTHORIZATION);
+
+        if (authorization == null) {
+            Log.e(TAG, "Error: Authorization not found!");
+            return Report.RESULT_RETRY;
+        }
+
+        Headers headers = Headers.of(AUTHORIZATION, authorization);
+
+        if (!report.mPlaybackSent) {
+            int result = doGet(report.mUrl.replace("api/stats/watchtime?", "api/stats/playback?"), headers);
+
+            if (result == Report.RESULT_RETRY) {
+                return result;
+            }
+
+            report.mPlaybackSent = true; // persisted with the outbox
+        }
+
+        return doGet(report.mUrl, headers);
+    }
+
+    private static int doGet(String url, Headers headers) {
+        Response response = OkHttpManager.instance().doGet(url, headers);
+
+        if (response == null) {
+            Log.e(TAG, "No tracking response. Url: " + url);
+            return Report.RESULT_RETRY;
+        }
+
+        try {
+            if (response.isSuccessful()) {
+                return Report.RESULT_DONE;
+            }
+
+            Log.e(TAG, "Bad tracking response: " + response);
+
+            // server errors are temporary, others won't be fixed by retry
+            return response.code() >= 500 || response.code() == 429 ? Report.RESULT_RETRY : Report.RESULT_DONE;
+        } finally {
+            response.close();
+        }
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Report> iterator = mReports.values().iterator(); iterator.hasNext(); ) {
+            if (now - iterator.next().mTimeMs > MAX_AGE_MS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void trimReports() {
+        Iterator<String> iterator = mReports.keySet().iterator();
+
+        while (mReports.size() > MAX_REPORTS && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove(); // oldest first
+        }
+    }
+
+    private void load() {
+        if (!mOutboxFile.exists()) {
+            return;
+        }
+
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(mOutboxFile), "UTF-8"));
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int delim = line.indexOf(DELIM);
+
+                if (delim <= 0) {
+                    continue; // truncated line
+                }
+
+                try {
+                    long timeMs = Long.parseLong(line.substring(0, delim));
+                    String url = line.substring(delim + 1);
+                    boolean playbackSent = false;
+                    int urlDelim = url.indexOf(DELIM);
+
+                    if (urlDelim > 0) { // step progress
+                        playbackSent = url.startsWith(PLAYBACK_SENT);
+                        url = url.substring(urlDelim + 1);
+                    }
+
+                    String key = getKey(url);
+
+                    synchronized (mReports) {
+                        if (!mReports.containsKey(key)) { // don't overwrite new updates
+                            Report report = new Report(url, timeMs);
+                            report.mPlaybackSent = playbackSent;
+                            mReports.put(key, report);
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    // truncated line
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read history outbox: " + e.getMessage());
+        } finally {
+            close(reader);
+        }
+
+        synchronized (mReports) {
+            removeExpired();
+            trimReports();
+
+            if (mReports.isEmpty()) {
+                return;
+            }
+
+            Log.d(TAG, "Pending history reports found: " + mReports.size());
+        }
+
+        scheduleFlush(COALESCE_DELAY_MS);
+    }
+
+    /**
+     * Rewrite outbox with current reports
+     */
+    private void save() {
+        List<Report> snapshot;
+
+        synchronized (mReports) {
+            snapshot = new ArrayList<>(mReports.values());
+        }
+
+        if (snapshot.isEmpty()) {
+            if (mOutboxFile.exists() && !mOutboxFile.delete()) {
+                Log.e(TAG, "Can't delete history outbox");
+            }
+
+            return;
+        }
+
+        File tmpFile = new File(mOutboxFile.getPath() + ".tmp");
+
+        Writer writer = null;
+
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8"));
+
+            for (Report report : snapshot) {
+                writer.write(String.valueOf(report.mTimeMs) + DELIM + (report.mPlaybackSent ? PLAYBACK_SENT : PLAYBACK_PENDING) + DELIM + report.mUrl + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't save history outbox: " + e.getMessage());
+            return;
+        } finally {
+            close(writer);
+        }
+
+        if (!tmpFile.renameTo(mOutboxFile)) {
+            Log.e(TAG, "Can't save history outbox");
+        }
+    }
+
+    private static String getKey(String trackingUrl) {
+        MyQueryString query = MyQueryStringFactory.parse(trackingUrl);
+        String videoId = query.get(PARAM_VIDEO_ID);
+
+        return videoId != null ? videoId : trackingUrl;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private static class Report {
+        private static final int RESULT_DONE = 0;
+        private static final int RESULT_RETRY = 1;
+        private final String mUrl;
+        private final long mTimeMs;
+        private boolean mPlaybackSent;
+
+        Report(String url, long timeMs) {
+            mUrl = url;
+            mTimeMs = timeMs;
+        }
+    }
+}
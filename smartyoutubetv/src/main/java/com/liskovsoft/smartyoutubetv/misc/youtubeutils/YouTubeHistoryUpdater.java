@@ -3,15 +3,10 @@ package com.liskovsoft.smartyoutubetv.misc.youtubeutils;
 import android.content.Context;
 
 import com.liskovsoft.sharedutils.mylogger.Log;
-import com.liskovsoft.sharedutils.okhttp.OkHttpHelpers;
 import com.liskovsoft.smartyoutubetv.misc.HeaderManager;
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyQueryString;
 import com.liskovsoft.smartyoutubetv.misc.myquerystring.MyQueryStringFactory;
 
-import java.util.HashMap;
-
-import okhttp3.Response;
-
 public class YouTubeHistoryUpdater {
     private static final String TAG = YouTubeHistoryUpdater.class.getSimpleName();
     private static final String LEN = "len";
@@ -19,42 +14,27 @@ public class YouTubeHistoryUpdater {
     private static final String ST = "st";
     private static final String ET = "et";
     private final HeaderManager mManager;
+    private final HistoryReportQueue mQueue;
 
     public YouTubeHistoryUpdater(Context context) {
         mManager = new HeaderManager(context);
+        mQueue = HistoryReportQueue.instance(context);
     }
 
     public void sync(String trackingUrl, float position, float length) {
         Log.d(TAG, String.format("Start history updating: %s, position: %s, length: %s", trackingUrl, position, length));
-        HashMap<String, String> headers = mManager.getHeaders();
-
-        String authorization = headers.get("Authorization");
+        String authorization = mManager.getHeaderSnapshot().get("Authorization");
 
         if (authorization == null) {
             Log.e(TAG, "Error: Authorization not found!");
             return;
         }
 
-        // TODO: for testing only!
-        HashMap<String, String> testHeaders = new HashMap<>();
-        testHeaders.put("Authorization", authorization);
-
         final String fullTrackingUrl = processUrl(trackingUrl, position, length);
         Log.d(TAG, "Composed tracking url: " + fullTrackingUrl);
         //Log.d(TAG, "Tracking headers: " + headers);
-        new Thread(() -> {  // avoid NetworkOnMainThreadException
-            Response response = OkHttpHelpers.doGetOkHttpRequest(fullTrackingUrl.replace("api/stats/watchtime?", "api/stats/playback?"), testHeaders);
-
-            if (response == null || !response.isSuccessful()) {
-                Log.e(TAG, "Bad tracking response: " + response);
-            }
-
-            response = OkHttpHelpers.doGetOkHttpRequest(fullTrackingUrl, testHeaders);
-
-            if (response == null || !response.isSuccessful()) {
-                Log.e(TAG, "Bad tracking response: " + response);
-            }
-        }).start();
+        // pending update of the same video is replaced
+        mQueue.enqueue(fullTrackingUrl);
     }
 
     private String processUrl(String trackingUrl, float position, float length) {
@@ -52,7 +52,10 @@ public class CachedMainScriptManager extends MainScriptManager {
         return CacheHelpers.saveToCache(mCache, super.getStyles(), STYLES_KEY);
     }
 
-    private int getHash() {
+    /**
+     * Changes when the set of the enabled script managers has changed
+     */
+    public int getHash() {
         int fullHash = 0;
         for (ScriptManager manager : getManagers()) {
             int hash = manager.getClass().getName().hashCode();
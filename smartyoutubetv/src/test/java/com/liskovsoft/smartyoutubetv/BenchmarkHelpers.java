@@ -0,0 +1,115 @@
+package com.liskovsoft.smartyoutubetv;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Repeatable timed harness for the benchmark tests.<br/>
+ * Benchmarks are skipped unless BENCHMARK environment variable is set, e.g.:<br/>
+ * BENCHMARK=1 ./gradlew :smartyoutubetv:testDebugUnitTest --tests '*Benchmark*'
+ */
+public class BenchmarkHelpers {
+    private static final String ENV_BENCHMARK = "BENCHMARK";
+    private static final String SUN_THREAD_BEAN = "com.sun.management.ThreadMXBean";
+    private static final Method sAllocatedBytesMethod = findAllocatedBytesMethod();
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public static boolean isEnabled() {
+        return System.getenv(ENV_BENCHMARK) != null;
+    }
+
+    /**
+     * @return median time and mean allocation of the measured runs
+     */
+    public static Result measure(String name, int warmups, int runs, Task task) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            task.run();
+        }
+
+        long[] times = new long[runs];
+        long allocated = 0;
+
+        for (int i = 0; i < runs; i++) {
+            long startBytes = getAllocatedBytes();
+            long startNanos = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - startNanos;
+            long endBytes = getAllocatedBytes();
+
+            allocated = allocated < 0 || startBytes < 0 || endBytes < 0 ? -1 : allocated + endBytes - startBytes;
+        }
+
+        Arrays.sort(times);
+
+        return new Result(name, times[runs / 2], allocated < 0 ? -1 : allocated / runs);
+    }
+
+    /**
+     * Bytes allocated by the current thread or -1 when the jvm can't tell
+     */
+    private static long getAllocatedBytes() {
+        if (sAllocatedBytesMethod == null) {
+            return -1;
+        }
+
+        try {
+            return (Long) sAllocatedBytesMethod.invoke(ManagementFactory.getThreadMXBean(), Thread.currentThread().getId());
+        } catch (ReflectiveOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * com.sun.management isn't available on every jvm, so it's accessed by reflection
+     */
+    private static Method findAllocatedBytesMethod() {
+        try {
+            Class<?> beanClass = Class.forName(SUN_THREAD_BEAN);
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (!beanClass.isInstance(bean) || !(Boolean) beanClass.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) {
+                return null;
+            }
+
+            beanClass.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+
+            return beanClass.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static class Result {
+        private final String mName;
+        private final long mMedianNanos;
+        private final long mAllocatedBytes;
+
+        private Result(String name, long medianNanos, long allocatedBytes) {
+            mName = name;
+            mMedianNanos = medianNanos;
+            mAllocatedBytes = allocatedBytes;
+        }
+
+        public long getMedianNanos() {
+            return mMedianNanos;
+        }
+
+        /**
+         * @return bytes per run or -1 when not supported
+         */
+        public long getAllocatedBytes() {
+            return mAllocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            String allocated = mAllocatedBytes < 0 ? "n/a" : String.format("%s KB", mAllocatedBytes / 1024);
+            return String.format("%s: %.2f ms, allocated %s per run", mName, mMedianNanos / 1_000_000f, allocated);
+        }
+    }
+}
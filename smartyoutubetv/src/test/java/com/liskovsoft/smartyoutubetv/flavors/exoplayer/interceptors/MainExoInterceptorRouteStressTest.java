@@ -0,0 +1,137 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors;
+
+import android.content.Context;
+import android.webkit.WebResourceResponse;
+import com.liskovsoft.smartyoutubetv.interceptors.InterceptDecision;
+import com.liskovsoft.smartyoutubetv.interceptors.RequestInterceptor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class MainExoInterceptorRouteStressTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 5_000;
+    private static final String[] URLS = {
+            "https://www.youtube.com/s/player/64dddad9/tv-player-ias.vflset/tv-player-ias.js",
+            "https://www.youtube.com/get_video_info?html5=1&video_id=abc&cpn=123",
+            "https://www.youtube.com/youtubei/v1/next?key=123",
+            "https://www.youtube.com/youtubei/v1/browse?key=123",
+            "https://www.youtube.com/youtubei/v1/guide",
+            "https://www.youtube.com/ptracking?html5=1&video_id=abc",
+            "https://s.youtube.com/api/stats/watchtime?ns=yt&docid=abc",
+            "https://www.youtube.com/api/lounge/bc/bind?device=LOUNGE_SCREEN&id=1",
+            "https://www.youtube.com/api/lounge/bc/bind?device=REMOTE_CONTROL",
+            "https://i.ytimg.com/vi/abc/hqdefault.jpg"
+    };
+    private static final int[] ROUTES = {
+            MainExoInterceptor.ROUTE_DECIPHER,
+            MainExoInterceptor.ROUTE_VIDEO_INFO,
+            MainExoInterceptor.ROUTE_NEXT,
+            MainExoInterceptor.ROUTE_NEXT,
+            MainExoInterceptor.ROUTE_NEXT,
+            MainExoInterceptor.ROUTE_PLAY_END,
+            MainExoInterceptor.ROUTE_HISTORY,
+            MainExoInterceptor.ROUTE_SCREEN_MIRROR,
+            MainExoInterceptor.ROUTE_NONE,
+            MainExoInterceptor.ROUTE_NONE
+    };
+    private RequestInterceptor[] mHandlers;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+
+        mHandlers = MainExoInterceptor.createRouteHandlers(
+                new TestInterceptor(context),
+                new TestInterceptor(context),
+                new TestInterceptor(context),
+                new TestInterceptor(context),
+                new TestInterceptor(context),
+                new TestInterceptor(context));
+    }
+
+    @Test
+    public void testConcurrentRoutes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            int offset = i;
+            results.add(executor.submit((Callable<Integer>) () -> {
+                startGate.await();
+
+                int checked = 0;
+
+                for (int j = 0; j < ITERATIONS; j++) {
+                    int index = (offset + j) % URLS.length;
+                    checkDecision(index, MainExoInterceptor.route(URLS[index], mHandlers));
+                    checked++;
+                }
+
+                return checked;
+            }));
+        }
+
+        startGate.countDown();
+
+        int total = 0;
+
+        for (Future<Integer> result : results) {
+            total += result.get(); // rethrows assertion errors of the worker
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(THREADS * ITERATIONS, total);
+    }
+
+    private void checkDecision(int index, InterceptDecision decision) {
+        String url = URLS[index];
+        int route = ROUTES[index];
+
+        if (route == MainExoInterceptor.ROUTE_NONE) {
+            assertSame("Url shouldn't be routed: " + url, InterceptDecision.SKIP, decision);
+            return;
+        }
+
+        RequestInterceptor handler = mHandlers[route];
+        assertTrue("Url isn't routed: " + url, decision.isMatched());
+        assertSame("Wrong handler for url: " + url, handler, decision.getHandler());
+        assertSame("Wrong response for url: " + url, ((TestInterceptor) handler).mResponse, decision.execute(url));
+    }
+
+    private static class TestInterceptor extends RequestInterceptor {
+        private final WebResourceResponse mResponse = new WebResourceResponse(null, null, null);
+
+        TestInterceptor(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean test(String url) {
+            return true;
+        }
+
+        @Override
+        public WebResourceResponse intercept(String url) {
+            return mResponse;
+        }
+    }
+}
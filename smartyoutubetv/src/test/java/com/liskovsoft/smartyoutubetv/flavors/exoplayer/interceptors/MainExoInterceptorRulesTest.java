@@ -0,0 +1,46 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.interceptors;
+
+import com.liskovsoft.smartyoutubetv.interceptors.UrlDispatchIndex;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class MainExoInterceptorRulesTest {
+    private static final String[] URLS = {
+            "https://www.youtube.com/s/player/64dddad9/tv-player-ias.vflset/tv-player-ias.js",
+            "https://www.youtube.com/s/player/64dddad9/tv-player-ias.js?v=2",
+            "https://www.youtube.com/s/player/64dddad9/tv-player-es6.js",
+            "https://www.youtube.com/get_video_info?html5=1&video_id=abc&cpn=123",
+            "https://www.youtube.com/youtubei/v1/next?key=123",
+            "https://www.youtube.com/youtubei/v1/browse?key=123&sytv_rid=a_1",
+            "https://www.youtube.com/youtubei/v1/guide",
+            "https://s.youtube.com/api/stats/watchtime?ns=yt&docid=abc",
+            "https://www.youtube.com/ptracking?html5=1&video_id=abc",
+            "https://www.youtube.com/api/lounge/bc/bind?device=LOUNGE_SCREEN&id=1",
+            "https://www.youtube.com/api/lounge/bc/bind?device=REMOTE_CONTROL",
+            "https://i.ytimg.com/vi/abc/hqdefault.jpg",
+            "https://www.youtube.com/s/tv/html5/live.js"
+    };
+
+    @Test
+    public void testRulesCoverRoutes() {
+        UrlDispatchIndex index = new UrlDispatchIndex(Collections.singletonList(MainExoInterceptor.createUrlRules()));
+
+        for (String url : URLS) {
+            if (MainExoInterceptor.findRoute(url) != MainExoInterceptor.ROUTE_NONE) {
+                assertEquals("Url isn't covered by rules: " + url, 1, index.classify(url));
+            }
+        }
+    }
+
+    @Test
+    public void testPlayerScriptRoute() {
+        assertEquals(MainExoInterceptor.ROUTE_DECIPHER, MainExoInterceptor.findRoute(URLS[0]));
+        assertEquals(MainExoInterceptor.ROUTE_DECIPHER, MainExoInterceptor.findRoute(URLS[1]));
+        assertEquals(MainExoInterceptor.ROUTE_DECIPHER, MainExoInterceptor.findRoute(URLS[2]));
+        assertEquals(MainExoInterceptor.ROUTE_SCREEN_MIRROR, MainExoInterceptor.findRoute(URLS[9]));
+        assertEquals(MainExoInterceptor.ROUTE_NONE, MainExoInterceptor.findRoute(URLS[10]));
+    }
+}
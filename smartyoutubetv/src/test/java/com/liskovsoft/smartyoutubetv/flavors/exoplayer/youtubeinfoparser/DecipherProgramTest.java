@@ -0,0 +1,55 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser;
+
+import com.liskovsoft.sharedutils.TestHelpers;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.DecipherProgram;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.DecipherUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class DecipherProgramTest {
+    private static final String CIPHERED_SIG = "98C85C188F11DA24D5964D412FA4487AE09127A9C.893CF7AD1FA33DF80C481AC9186D768667511E7E7A73";
+    // result of the tv-player.js routine: reverse, splice(2), swap(1), splice(3), swap(11), swap(9), splice(2)
+    private static final String DECIPHERED_SIG = "1157668D776819CA184C08FD33AF1DA7FC398.C9A72190EA7844AF214D4695D42AD11F881C58C89";
+
+    @Test
+    public void testCompiledRoutine() {
+        String jsCode = DecipherUtils.extractDecipherCode(TestHelpers.openResource("tv-player.js"));
+        DecipherProgram program = DecipherProgram.compile("test", jsCode);
+
+        assertNotNull(program);
+        assertEquals(DECIPHERED_SIG, program.decipher(CIPHERED_SIG));
+
+        List<String> result = program.decipher(Arrays.asList(CIPHERED_SIG, null));
+        assertEquals(DECIPHERED_SIG, result.get(0));
+        assertNull(result.get(1));
+
+        assertSame(program, DecipherProgram.compile("test", null));
+    }
+
+    @Test
+    public void testUnknownRoutine() {
+        String jsCode = "var EQ={F2:function(a,b){a.splice(0,b)}};\n" +
+                "function decipherSignature(a){a=a.split(\"\");EQ.F2(a,2);Zz.Xy(a,5);return a.join(\"\")}";
+
+        assertNull(DecipherProgram.compile("unknown", jsCode));
+    }
+
+    @Test
+    public void testUnknownStatement() {
+        String jsCode = "var EQ={F2:function(a,b){a.splice(0,b)}};\n" +
+                "function decipherSignature(a){a=a.split(\"\");EQ.F2(a,2);a=a.slice(1);EQ.F2(a,3);return a.join(\"\")}";
+
+        assertNull(DecipherProgram.compile("unknown_statement", jsCode));
+        assertNull(DecipherProgram.getCurrent());
+    }
+}
@@ -0,0 +1,95 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.mpd;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv.BenchmarkHelpers;
+import com.liskovsoft.smartyoutubetv.BenchmarkHelpers.Result;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ManifestRegistry;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.player.helpers.ManifestRegistry.ContentBuffer;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.SimpleYouTubeMediaItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Baseline {@link LegacySimpleMPDBuilder} against the current {@link SimpleMPDBuilder}.<br/>
+ * Both paths end in the {@link ManifestRegistry}, like the manifest that is passed to the player.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SimpleMPDBuilderBenchmarkTest {
+    private static final int SEGMENT_COUNT = 5_000; // long live stream
+    private static final int WARMUPS = 5;
+    private static final int RUNS = 15;
+    private List<String> mSegments;
+
+    @Before
+    public void setUp() {
+        assumeTrue(BenchmarkHelpers.isEnabled());
+
+        mSegments = new ArrayList<>();
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            mSegments.add("sq/" + i + "/lmt/1546797364563137");
+        }
+    }
+
+    @Test
+    public void benchmarkBuild() throws Exception {
+        assertEquals(removeIndent(Helpers.toString(buildLegacy())), removeIndent(new String(buildCurrent().toByteArray())));
+
+        Result legacy = BenchmarkHelpers.measure("Legacy SimpleMPDBuilder", WARMUPS, RUNS,
+                () -> checkAndRelease(ManifestRegistry.instance().register(buildLegacy())));
+        Result current = BenchmarkHelpers.measure("SimpleMPDBuilder", WARMUPS, RUNS,
+                () -> checkAndRelease(ManifestRegistry.instance().register(buildCurrent())));
+
+        System.out.println(String.format("Segments: %s", SEGMENT_COUNT));
+        System.out.println(legacy);
+        System.out.println(current);
+    }
+
+    private InputStream buildLegacy() {
+        LegacySimpleMPDBuilder builder = new LegacySimpleMPDBuilder();
+        builder.append(createItem());
+
+        return builder.build();
+    }
+
+    private ContentBuffer buildCurrent() {
+        SimpleMPDBuilder builder = new SimpleMPDBuilder();
+        builder.append(createItem());
+
+        ContentBuffer out = new ContentBuffer();
+        builder.build(out);
+
+        return out;
+    }
+
+    private static void checkAndRelease(long handle) {
+        assertTrue(handle != ManifestRegistry.NO_HANDLE);
+        ManifestRegistry.instance().release(handle);
+    }
+
+    private SimpleYouTubeMediaItem createItem() {
+        SimpleYouTubeMediaItem item = new SimpleYouTubeMediaItem();
+        item.setUrl("http://empty.url?dur=1234"); // we must setup a duration
+        item.setType("video/mp4;+codecs=\"avc1.640033\"");
+        item.setInit("0-759");
+        item.setIndex("0-759");
+        item.setITag("133");
+        item.setSegmentUrlList(mSegments);
+
+        return item;
+    }
+
+    private static String removeIndent(String xml) {
+        return xml.replaceAll(">\\s+<", "><").trim();
+    }
+}
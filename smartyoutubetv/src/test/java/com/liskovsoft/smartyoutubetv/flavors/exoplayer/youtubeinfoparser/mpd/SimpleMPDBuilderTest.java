@@ -0,0 +1,54 @@
+package com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.mpd;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv.flavors.exoplayer.youtubeinfoparser.misc.SimpleYouTubeMediaItem;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class SimpleMPDBuilderTest {
+    @Test
+    public void compactOutputTest() {
+        MPDBuilder builder = createBuilder(10);
+        String indented = Helpers.toString(builder.build());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.build(out);
+        String compact = new String(out.toByteArray());
+
+        assertEquals(removeIndent(indented), removeIndent(compact));
+    }
+
+    private static MPDBuilder createBuilder(int segmentCount) {
+        SimpleYouTubeMediaItem item = new SimpleYouTubeMediaItem();
+        item.setUrl("http://empty.url?dur=1234"); // we must setup a duration
+        item.setType("video/mp4;+codecs=\"avc1.640033\"");
+        item.setInit("0-759");
+        item.setIndex("0-759");
+        item.setITag("133");
+
+        List<String> segments = new ArrayList<>();
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add("sq/" + i + "/lmt/1546797364563137");
+        }
+
+        item.setSegmentUrlList(segments);
+
+        MPDBuilder builder = new SimpleMPDBuilder();
+        builder.append(item);
+
+        return builder;
+    }
+
+    private static String removeIndent(String xml) {
+        return xml.replaceAll(">\\s+<", "><").trim();
+    }
+}
@@ -0,0 +1,42 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PostDataRegistryTest {
+    private static final String BROWSE_URL = "https://www.youtube.com/youtubei/v1/browse?key=123";
+
+    @Test
+    public void testOverlappedRequests() {
+        PostDataRegistry registry = PostDataRegistry.instance();
+        registry.put("a_1\n{\"browseId\":\"default\"}");
+        registry.put("a_2\n{\"continuation\":\"abc\"}");
+
+        assertEquals("{\"continuation\":\"abc\"}", registry.take(BROWSE_URL + "&sytv_rid=a_2"));
+        assertEquals("{\"browseId\":\"default\"}", registry.take(BROWSE_URL + "&sytv_rid=a_1"));
+        assertNull(registry.take(BROWSE_URL + "&sytv_rid=a_1")); // used only once
+    }
+
+    @Test
+    public void testOnlyReplayedRequestsTagged() {
+        PostDataRegistry registry = PostDataRegistry.instance();
+        registry.setReplayer("/youtubei/v1/browse", url -> url.contains("key=123"));
+
+        assertTrue(registry.isTagged(BROWSE_URL));
+        assertFalse(registry.isTagged("https://www.youtube.com/youtubei/v1/browse?key=456"));
+        assertFalse(registry.isTagged("https://www.youtube.com/youtubei/v1/guide?key=123"));
+        assertFalse(registry.isTagged(null));
+    }
+
+    @Test
+    public void testStripRequestId() {
+        assertEquals(BROWSE_URL, PostDataRegistry.stripRequestId(BROWSE_URL + "&sytv_rid=a_1"));
+        assertEquals("https://www.youtube.com/youtubei/v1/browse?key=123", PostDataRegistry.stripRequestId("https://www.youtube.com/youtubei/v1/browse?sytv_rid=a_1&key=123"));
+        assertEquals("https://www.youtube.com/api/lounge/bc/bind", PostDataRegistry.stripRequestId("https://www.youtube.com/api/lounge/bc/bind?sytv_rid=a_1"));
+        assertEquals(BROWSE_URL, PostDataRegistry.stripRequestId(BROWSE_URL));
+    }
+}
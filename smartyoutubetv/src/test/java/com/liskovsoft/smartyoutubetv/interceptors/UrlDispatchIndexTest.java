@@ -0,0 +1,48 @@
+package com.liskovsoft.smartyoutubetv.interceptors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class UrlDispatchIndexTest {
+    private UrlDispatchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new UrlDispatchIndex(Arrays.asList(
+                null,
+                new UrlRules().addPathPrefix("/youtubei/v1/browse"),
+                new UrlRules().addSuffix("live.js", "app-prod.js"),
+                new UrlRules().addPathPrefix("/get_video_info").addSuffix("tv-player-ias.js"),
+                new UrlRules().addSubstring("tv-player")
+        ));
+    }
+
+    @Test
+    public void testClassify() {
+        assertEquals(0b0001, mIndex.classify("https://i.ytimg.com/vi/abc/hqdefault.jpg"));
+        assertEquals(0b0011, mIndex.classify("https://www.youtube.com/youtubei/v1/browse?key=123"));
+        assertEquals(0b0101, mIndex.classify("https://www.youtube.com/s/tv/html5/live.js"));
+        assertEquals(0b0101, mIndex.classify("https://www.youtube.com/s/tv/html5/app-prod.js"));
+        assertEquals(0b1001, mIndex.classify("https://www.youtube.com/get_video_info?video_id=abc"));
+        assertEquals(0b11001, mIndex.classify("https://www.youtube.com/s/player/123/tv-player-ias.js"));
+    }
+
+    @Test
+    public void testQueryAndSubstring() {
+        assertEquals(0b00101, mIndex.classify("https://www.youtube.com/s/tv/html5/live.js?v=2#top"));
+        assertEquals(0b11001, mIndex.classify("https://www.youtube.com/s/player/123/tv-player-ias.js?v=1"));
+        assertEquals(0b10001, mIndex.classify("https://www.youtube.com/s/player/123/tv-player-es6.js"));
+    }
+
+    @Test
+    public void testNoFalseMatches() {
+        assertEquals(0b0001, mIndex.classify("https://www.youtube.com/youtubei/v1/next"));
+        assertEquals(0b0001, mIndex.classify("https://www.youtube.com/s/tv/html5/live.json"));
+        assertEquals(0b0001, mIndex.classify("https://www.youtube.com"));
+        assertEquals(0b0001, mIndex.classify("https://www.youtube.com/api/get_video_info"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MastheadFilterInputStreamTest {
+    private static final int ITEM_COUNT = 20_000;
+
+    @Test
+    public void testOutputBeforeEndOfInput() throws IOException {
+        StringBuilder json = new StringBuilder("{\"contents\":[{\"tvMastheadRenderer\":{\"title\":\"ad\"}}");
+
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            json.append(",{\"tileRenderer\":{\"title\":\"item ").append(i).append("\"}}");
+        }
+
+        json.append("]}");
+
+        byte[] input = json.toString().getBytes(StandardCharsets.UTF_8);
+        CountingInputStream content = new CountingInputStream(new ByteArrayInputStream(input));
+        MastheadFilterInputStream filter = new MastheadFilterInputStream(content);
+
+        byte[] head = new byte[1024];
+        int size = filter.read(head);
+
+        assertTrue(size > 0);
+        assertTrue("Input is consumed fully before the first output: " + content.mCount, content.mCount < input.length / 2);
+        assertTrue(new String(head, 0, size, StandardCharsets.UTF_8).startsWith("{\"contents\":[{\"tileRenderer\""));
+
+        String result = new String(head, 0, size, StandardCharsets.UTF_8) + readFully(filter);
+
+        assertFalse(result.contains("tvMastheadRenderer"));
+        assertTrue(result.endsWith("{\"tileRenderer\":{\"title\":\"item " + (ITEM_COUNT - 1) + "\"}}]}"));
+        assertTrue(filter.isRemoved());
+    }
+
+    @Test
+    public void testRemoveElementRegardlessOfOrder() throws IOException {
+        String result = filter("{\"items\":[{\"id\":1,\"tvMastheadRenderer\":{\"title\":\"ad\"}},{\"id\":2,\"title\":null,\"text\":\"é😀\"}]}");
+
+        assertEquals("{\"items\":[{\"id\":2,\"text\":\"é😀\"}]}", result);
+    }
+
+    @Test
+    public void testLargeElementIsSent() throws IOException {
+        StringBuilder filler = new StringBuilder();
+
+        for (int i = 0; i < 1_000; i++) {
+            filler.append("filler ");
+        }
+
+        String result = filter("{\"items\":[{\"text\":\"" + filler + "\",\"tvMastheadRenderer\":{\"title\":\"ad\"},\"id\":1}]}");
+
+        assertEquals("{\"items\":[{\"text\":\"" + filler + "\",\"id\":1}]}", result);
+    }
+
+    private static String filter(String json) throws IOException {
+        MastheadFilterInputStream filter = new MastheadFilterInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        String result = readFully(filter);
+
+        assertTrue(filter.isRemoved());
+
+        return result;
+    }
+
+    private static String readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int size;
+
+        try {
+            while ((size = is.read(buffer)) != -1) {
+                result.write(buffer, 0, size);
+            }
+        } finally {
+            is.close();
+        }
+
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private int mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+
+            if (result != -1) {
+                mCount++;
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int size = super.read(b, off, len);
+
+            if (size > 0) {
+                mCount += size;
+            }
+
+            return size;
+        }
+    }
+}
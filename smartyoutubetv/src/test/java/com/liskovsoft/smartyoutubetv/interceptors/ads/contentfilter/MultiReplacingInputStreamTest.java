@@ -0,0 +1,66 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads.contentfilter;
+
+import com.liskovsoft.sharedutils.TestHelpers;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiReplacingInputStreamTest {
+    private Map<String, String> mPairs;
+    private Map<String, String> mPairsRegExp;
+    private MultiPatternReplacer mReplacer;
+
+    @Before
+    public void setUp() {
+        mPairs = new HashMap<>();
+        mPairs.put("tvMastheadRenderer", "tvMastheadRendererOld");
+        mPairsRegExp = new HashMap<>();
+        mPairsRegExp.put("enableAnimations:![!\\.\\w]+,", "enableAnimations:true,");
+        mPairsRegExp.put("\\w+\\.\\w+\\|\\|\\(\\w+\\.get\\(\\)\\?([\\w$]+\\(\\w+\\.body,\"high-contrast\"\\)):\\w+\\(\\w+\\.body,\"high-contrast\"\\)\\)", "$1");
+        mReplacer = new MultiPatternReplacer(mPairs, mPairsRegExp);
+    }
+
+    @Test
+    public void replacementTest() {
+        String origin = Helpers.toString(TestHelpers.openResource("ads/main_origin.js"));
+        String expected = replaceSequentially(origin);
+
+        assertEquals(expected, Helpers.toString(mReplacer.wrap(toStream(origin))));
+    }
+
+    @Test
+    public void chunkBoundaryTest() {
+        String origin = "a.b||(c.get()?hH(a.body,\"high-contrast\"):jH(a.body,\"high-contrast\"));tvMastheadRenderer;enableAnimations:!0,é€";
+        String expected = replaceSequentially(origin);
+
+        for (int chunkSize = 1; chunkSize < 20; chunkSize++) {
+            InputStream result = new MultiReplacingInputStream(toStream(origin), mReplacer, chunkSize, 100);
+            assertEquals("chunk size " + chunkSize, expected, Helpers.toString(result));
+        }
+    }
+
+    private String replaceSequentially(String data) {
+        for (Map.Entry<String, String> pair : mPairs.entrySet()) {
+            data = data.replace(pair.getKey(), pair.getValue());
+        }
+
+        for (Map.Entry<String, String> pair : mPairsRegExp.entrySet()) {
+            data = data.replaceAll(pair.getKey(), pair.getValue());
+        }
+
+        return data;
+    }
+
+    private static InputStream toStream(String data) {
+        return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+package com.liskovsoft.smartyoutubetv.interceptors.ads.contentfilter;
+
+import com.liskovsoft.sharedutils.TestHelpers;
+import com.liskovsoft.smartyoutubetv.BenchmarkHelpers;
+import com.liskovsoft.smartyoutubetv.BenchmarkHelpers.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Baseline {@link LegacyReplacingInputStream} against the current {@link ReplacingInputStream}
+ */
+public class ReplacingInputStreamBenchmarkTest {
+    private static final byte[] PATTERN = "tvMastheadRenderer".getBytes();
+    private static final byte[] REPLACEMENT = "tvMastheadRendererOld".getBytes();
+    private static final int MIN_INPUT_SIZE = 3 * 1024 * 1024;
+    private static final int WARMUPS = 5;
+    private static final int RUNS = 15;
+    private byte[] mInput;
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue(BenchmarkHelpers.isEnabled());
+
+        // fixture is repeated to get the size of the real main script
+        byte[] script = readFully(TestHelpers.openResource("ads/main_origin.js"));
+        ByteArrayOutputStream input = new ByteArrayOutputStream(MIN_INPUT_SIZE + script.length);
+
+        while (input.size() < MIN_INPUT_SIZE) {
+            input.write(script);
+        }
+
+        mInput = input.toByteArray();
+    }
+
+    @Test
+    public void benchmarkReplace() throws Exception {
+        assertArrayEquals(
+                readFully(new LegacyReplacingInputStream(new ByteArrayInputStream(mInput), PATTERN, REPLACEMENT)),
+                readFully(new ReplacingInputStream(new ByteArrayInputStream(mInput), PATTERN, REPLACEMENT)));
+
+        Result legacy = BenchmarkHelpers.measure("Legacy ReplacingInputStream", WARMUPS, RUNS,
+                () -> readFully(new LegacyReplacingInputStream(new ByteArrayInputStream(mInput), PATTERN, REPLACEMENT)));
+        Result current = BenchmarkHelpers.measure("ReplacingInputStream", WARMUPS, RUNS,
+                () -> readFully(new ReplacingInputStream(new ByteArrayInputStream(mInput), PATTERN, REPLACEMENT)));
+
+        System.out.println(String.format("Input: %s KB", mInput.length / 1024));
+        System.out.println(legacy);
+        System.out.println(current);
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int size;
+
+        try {
+            while ((size = is.read(buffer)) != -1) {
+                result.write(buffer, 0, size);
+            }
+        } finally {
+            is.close();
+        }
+
+        return result.toByteArray();
+    }
+}
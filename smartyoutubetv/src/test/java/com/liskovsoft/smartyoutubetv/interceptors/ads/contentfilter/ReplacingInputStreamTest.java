@@ -6,6 +6,7 @@ import com.liskovsoft.sharedutils.helpers.Helpers;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
 import static org.junit.Assert.assertEquals;
@@ -25,4 +26,10 @@ public class ReplacingInputStreamTest {
         InputStream ris = new ReplacingInputStream(mMainJSOrigin, "tvMastheadRenderer".getBytes(), "tvMastheadRendererOld".getBytes());
         assertEquals(TestHelpers.unescapeJavaString(Helpers.toString(mMainJSResult)), TestHelpers.unescapeJavaString(Helpers.toString(ris)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void overlappingMatchTest() {
+        InputStream ris = new ReplacingInputStream(new ByteArrayInputStream("aaab xaab ab".getBytes()), "aab", "-");
+        assertEquals("a- x- ab", Helpers.toString(ris));
+    }
+}
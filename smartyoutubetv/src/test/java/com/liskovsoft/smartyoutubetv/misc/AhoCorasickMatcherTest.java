@@ -0,0 +1,61 @@
+package com.liskovsoft.smartyoutubetv.misc;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AhoCorasickMatcherTest {
+    private static final String[] ADS = {"youtube.com/pagead/", "doubleclick.net", "&adformat=1_2&", "s.youtube.com", "ad.youtube.com"};
+    private AhoCorasickMatcher mMatcher;
+
+    @Before
+    public void setUp() {
+        mMatcher = new AhoCorasickMatcher(ADS);
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(mMatcher.matches("https://www.youtube.com/pagead/viewthroughconversion"));
+        assertTrue(mMatcher.matches("https://ad.doubleclick.net/ddm/clk"));
+        assertTrue(mMatcher.matches("https://www.youtube.com/get_video_info?id=1&adformat=1_2&el=1"));
+        assertTrue(mMatcher.matches("https://ads.youtube.com/test"));
+        assertFalse(mMatcher.matches("https://www.youtube.com/youtubei/v1/browse"));
+        assertFalse(mMatcher.matches("https://i.ytimg.com/vi/123/hqdefault.jpg"));
+        assertFalse(mMatcher.matches(""));
+    }
+
+    @Test
+    public void testNullPatterns() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(new String[] {"doubleclick.net", null, "", "s.youtube.com", null});
+
+        assertTrue(matcher.matches("https://ad.doubleclick.net/ddm/clk"));
+        assertTrue(matcher.matches("https://s.youtube.com/api"));
+        assertFalse(matcher.matches("https://www.youtube.com/youtubei/v1/browse"));
+    }
+
+    @Test
+    public void testResumedScan() {
+        String url = "https://www.youtube.com/pagead/1";
+        int hostEnd = url.indexOf('/', 8);
+        int state = mMatcher.scan(AhoCorasickMatcher.ROOT, url, 0, hostEnd);
+        assertEquals(AhoCorasickMatcher.MATCH, mMatcher.scan(state, url, hostEnd, url.length()));
+    }
+
+    @Test
+    public void testSameAsContains() {
+        String[] urls = {"https://s.youtube.com/api", "https://www.youtube.com/pcs/", "https://doubleclick.ne/", "youtube.com/pagead"};
+
+        for (String url : urls) {
+            boolean expected = false;
+
+            for (String ad : ADS) {
+                expected |= url.contains(ad);
+            }
+
+            assertEquals(url, expected, mMatcher.matches(url));
+        }
+    }
+}